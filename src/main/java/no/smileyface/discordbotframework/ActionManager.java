@@ -1,21 +1,32 @@
 package no.smileyface.discordbotframework;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.GenericSelectMenuInteractionEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
-import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
 import no.smileyface.discordbotframework.entities.BotAction;
 import no.smileyface.discordbotframework.entities.ContextAction;
 import no.smileyface.discordbotframework.entities.GenericBotAction;
@@ -42,6 +53,15 @@ public class ActionManager extends ListenerAdapter {
 	private final Collection<GenericBotAction<?, ?, ?, ?, ?>> actions;
 	private final Identifier identifier;
 	private final String defaultNotFoundMessage;
+	private final String shuttingDownMessage;
+	private final Collection<Closeable> files;
+	private final Collection<MessageEditChannel> editChannels;
+	/**
+	 * Has one party for the manager itself, and one for each action that's running.
+	 */
+	private final Phaser runningActions;
+	private volatile boolean shuttingDown;
+	private final StartupTimeline startupTimeline;
 
 	/**
 	 * Constructor.
@@ -60,12 +80,30 @@ public class ActionManager extends ListenerAdapter {
 	 * @see #ActionManager(Collection)
 	 */
 	public ActionManager(ActionInitializer actionInitializer) {
-		this.scheduler = Executors.newSingleThreadScheduledExecutor();
-		this.contextActionRemovalTasks = new HashMap<>();
-		this.actions = new HashSet<>(actionInitializer.createActions(this));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "action-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.contextActionRemovalTasks = new ConcurrentHashMap<>();
+		this.startupTimeline = new StartupTimeline();
+		// Events may be handled by several threads at once, such as one per shard
+		this.actions = ConcurrentHashMap.newKeySet();
+		long creatingActions = System.nanoTime();
+		startupTimeline.startCreatingActions();
+		try {
+			actions.addAll(actionInitializer.createActions(this));
+		} finally {
+			startupTimeline.stopCreatingActions(creatingActions);
+		}
 		this.identifier = new Identifier(actions);
 		this.defaultNotFoundMessage = "Oops, the bot doesn't know how to respond to "
 				+ "whatever you just did. Please contact the bot owner";
+		this.shuttingDownMessage = "The bot is restarting, please try again in a moment";
+		this.files = ConcurrentHashMap.newKeySet();
+		this.editChannels = ConcurrentHashMap.newKeySet();
+		this.runningActions = new Phaser(1);
+		this.shuttingDown = false;
 	}
 
 	public Identifier getIdentifier() {
@@ -73,20 +111,47 @@ public class ActionManager extends ListenerAdapter {
 	}
 
 	/**
-	 * Runs {@link CommandListUpdateAction#addCommands(CommandData...)}
-	 * on every command associated with a {@link GenericBotAction}.
-	 * This will not queue the update action.
+	 * Gets the timeline of the bot's startup, such as how long each action took to create.
+	 *
+	 * @return The startup timeline
+	 */
+	public final StartupTimeline getStartupTimeline() {
+		return startupTimeline;
+	}
+
+	/**
+	 * Records that an action is being created, to time how long each action takes to create
+	 * during startup. This is called by every action, and doesn't need to be called manually.
 	 *
-	 * @param updateAction The command update action
-	 * @return The same update action that was passed, but with all commands added
+	 * @param action The action being created
 	 */
-	final CommandListUpdateAction addCommands(CommandListUpdateAction updateAction) {
-		return updateAction.addCommands(actions
+	public final void recordActionCreation(GenericBotAction<?, ?, ?, ?, ?> action) {
+		startupTimeline.actionCreated(action.getClass());
+	}
+
+	/**
+	 * Gets every command associated with a {@link GenericBotAction},
+	 * including every variant of each command.
+	 *
+	 * @return Every command of the bot
+	 */
+	final List<CommandData> getAllCommands() {
+		return actions
 				.stream()
 				.flatMap(action -> action.getCommands().stream())
 				.flatMap(command -> command.getAllVariants().stream())
-				.toList()
-		);
+				.toList();
+	}
+
+	/**
+	 * Derives the gateway data the bot needs from its actions.
+	 * Context actions added later must not require more than this.
+	 *
+	 * @param intents Any {@link GatewayIntent}s the bot requires beyond its actions
+	 * @return The requirements of the bot
+	 */
+	final GatewayRequirements getGatewayRequirements(GatewayIntent... intents) {
+		return GatewayRequirements.of(actions, intents);
 	}
 
 	/**
@@ -96,20 +161,120 @@ public class ActionManager extends ListenerAdapter {
 	 * @throws IllegalArgumentException If the context action is already added
 	 */
 	public final void addContextAction(ContextAction<?> action) {
-		if (actions.contains(action)) {
+		if (!actions.add(action)) {
 			throw new IllegalArgumentException("This action is already added");
 		}
-		this.actions.add(action);
 		this.contextActionRemovalTasks.put(
 				action,
 				action.scheduleOnExpiry(scheduler, () -> {
-					synchronized (actions) {
-						actions.remove(action);
-					}
+					actions.remove(action);
+					contextActionRemovalTasks.remove(action);
 				})
 		);
 	}
 
+	/**
+	 * Registers a file to be closed when the bot shuts down,
+	 * after every running action has finished, so no modifications are lost.
+	 * Typically called by actions on the file interfaces they create.
+	 *
+	 * @param file The file to register, such as a {@link
+	 *             no.smileyface.discordbotframework.files.FileInterface FileInterface}
+	 * @param <F>  The type of the file
+	 * @return The same file that was passed
+	 */
+	public final <F extends Closeable> F registerFile(F file) {
+		files.add(file);
+		return file;
+	}
+
+	/**
+	 * Opens a channel for editing the original reply of an interaction,
+	 * sending at most one edit per interval. The channel should be closed once the reply
+	 * won't be updated anymore, and is closed when the bot shuts down.
+	 *
+	 * @param hook     The hook of the interaction to edit the reply of
+	 * @param interval The min time between two edits
+	 * @return The opened edit channel
+	 * @see MessageEditChannel
+	 */
+	public final MessageEditChannel openEditChannel(InteractionHook hook, Duration interval) {
+		return openEditChannel(interval, hook::editOriginal);
+	}
+
+	/**
+	 * Opens a channel for editing a message sent by the bot,
+	 * sending at most one edit per interval. The channel should be closed once the message
+	 * won't be updated anymore, and is closed when the bot shuts down.
+	 *
+	 * @param message  The message to edit
+	 * @param interval The min time between two edits
+	 * @return The opened edit channel
+	 * @see MessageEditChannel
+	 */
+	public final MessageEditChannel openEditChannel(Message message, Duration interval) {
+		return openEditChannel(interval, message::editMessage);
+	}
+
+	private MessageEditChannel openEditChannel(
+			Duration interval,
+			Function<MessageEditData, RestAction<?>> editor
+	) {
+		MessageEditChannel channel = new MessageEditChannel(
+				scheduler,
+				interval,
+				data -> editor.apply(data).submit().whenComplete((result, failure) -> {
+					if (failure != null) {
+						LOGGER.warn("Could not edit a message", failure);
+					}
+				}),
+				editChannels::remove
+		);
+		editChannels.add(channel);
+		return channel;
+	}
+
+	/**
+	 * Stops running new actions, replying to their events that the bot is restarting instead,
+	 * and waits for the actions that are already running to finish.
+	 *
+	 * @param timeout The max time to wait for running actions
+	 * @throws InterruptedException If interrupted while waiting
+	 * @throws TimeoutException     If actions are still running after the timeout
+	 */
+	final void drain(Duration timeout) throws InterruptedException, TimeoutException {
+		if (shuttingDown) {
+			return;
+		}
+		shuttingDown = true;
+		int phase = runningActions.arriveAndDeregister();
+		if (phase >= 0) {
+			runningActions.awaitAdvanceInterruptibly(
+					phase,
+					timeout.toNanos(),
+					TimeUnit.NANOSECONDS
+			);
+		}
+	}
+
+	/**
+	 * Sends the latest update of every open {@link MessageEditChannel},
+	 * closes every {@link #registerFile(Closeable) registered file}, and stops the scheduler.
+	 * Files failing to close are logged, and don't keep the other files from closing.
+	 */
+	final void close() {
+		editChannels.forEach(MessageEditChannel::close);
+		for (Closeable file : files) {
+			try {
+				file.close();
+			} catch (IOException ioe) {
+				LOGGER.error("Could not close a file while shutting down", ioe);
+			}
+		}
+		files.clear();
+		scheduler.shutdownNow();
+	}
+
 	/**
 	 * Handles an incoming ready event. Fired whenever the bot comes online.
 	 * This can be overridden to add custom behavior.
@@ -128,15 +293,30 @@ public class ActionManager extends ListenerAdapter {
 	 * @param identifiableId The ID of the identifiable that triggered the event
 	 */
 	protected final void onActionEvent(IReplyCallback event, String identifiableId) {
+		// Registers before checking, so an action either finishes before a shutdown, or not at all
+		runningActions.register();
+		try {
+			if (shuttingDown) {
+				event.reply(shuttingDownMessage).setEphemeral(true).queue();
+			} else {
+				runAction(event, identifiableId);
+			}
+		} finally {
+			runningActions.arriveAndDeregister();
+		}
+	}
+
+	private void runAction(IReplyCallback event, String identifiableId) {
 		identifier.findAction(event).ifPresentOrElse(
 				action -> {
 					action.run(event);
 					if (action instanceof ContextAction<?> contextAction
 							&& contextAction.checkDeactivate()) {
-						contextActionRemovalTasks.remove(action).cancel(false);
-						synchronized (actions) {
-							actions.remove(action);
+						ScheduledFuture<?> removalTask = contextActionRemovalTasks.remove(action);
+						if (removalTask != null) {
+							removalTask.cancel(false);
 						}
+						actions.remove(action);
 					}
 				},
 				() -> event.reply(identifiableId.startsWith(ContextAction.CONTEXT_PREFIX)
@@ -0,0 +1,235 @@
+package no.smileyface.discordbotframework;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.requests.RestAction;
+import no.smileyface.discordbotframework.files.FileInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Registers the global commands of a bot, skipping the registration if they're unchanged.</p>
+ * <p>The hash of every registered command is stored in a file, per application.
+ * On the next start, commands are only sent to Discord if their hash changed:
+ * Added & changed commands are upserted one by one, and removed commands are deleted,
+ * instead of overwriting the whole command list.
+ * If no hashes are stored, the whole command list is overwritten.</p>
+ */
+final class CommandRegistrar {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CommandRegistrar.class);
+
+	private CommandRegistrar() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * Registers commands that changed since they were last registered. This will queue
+	 * the necessary requests, but not wait for them to complete.
+	 *
+	 * @param jda      The JDA instance to register the commands for
+	 * @param commands Every command the bot should have
+	 * @return A future completing once the commands are registered, or right away
+	 *         if they're unchanged. Completes normally even if the registration failed,
+	 *         as failures are logged
+	 */
+	static CompletableFuture<Void> register(JDA jda, Collection<CommandData> commands) {
+		Map<String, CommandData> commandsByName = new TreeMap<>();
+		Map<String, String> hashes = new TreeMap<>();
+		for (CommandData command : commands) {
+			commandsByName.put(command.getName(), command);
+			hashes.put(command.getName(), hash(command));
+		}
+		HashFileInterface hashFile;
+		try {
+			hashFile = new HashFileInterface("commands-" + jda.getSelfUser().getApplicationId());
+		} catch (IOException ioe) {
+			LOGGER.warn("Could not read the hashes of registered commands", ioe);
+			return whenDone(jda.updateCommands().addCommands(commands).submit(), null, hashes);
+		}
+		Map<String, String> registered = hashFile.getHashes();
+		Changes changes = diff(registered, hashes);
+		if (changes.isEmpty()) {
+			LOGGER.info("Commands are unchanged, skipping registration");
+			close(hashFile);
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<?> registration;
+		if (registered.isEmpty()) {
+			registration = jda.updateCommands().addCommands(commands).submit();
+		} else {
+			LOGGER.info(
+					"Registering {} changed commands, and removing {}",
+					changes.upserted.size(),
+					changes.removed.size()
+			);
+			List<RestAction<?>> upserts = new ArrayList<>();
+			changes.upserted.forEach(name -> upserts.add(
+					jda.upsertCommand(commandsByName.get(name))
+			));
+			if (changes.removed.isEmpty()) {
+				registration = RestAction.allOf(upserts).submit();
+			} else {
+				// The IDs of the removed commands are needed to delete them
+				registration = jda.retrieveCommands().submit().thenCompose(existing -> {
+					List<RestAction<?>> requests = new ArrayList<>(upserts);
+					existing.stream()
+							.filter(command -> command.getType() == Command.Type.SLASH)
+							.filter(command -> changes.removed.contains(command.getName()))
+							.map(command -> jda.deleteCommandById(command.getId()))
+							.forEach(requests::add);
+					return requests.isEmpty()
+							// Nothing left to do, the removed commands were already deleted
+							? CompletableFuture.completedFuture(null)
+							: RestAction.allOf(requests).submit();
+				});
+			}
+		}
+		return whenDone(registration, hashFile, hashes);
+	}
+
+	/**
+	 * Stores the hashes once the registration succeeds, and closes the hash file either way.
+	 *
+	 * @param registration The registration requests
+	 * @param hashFile     The file to store the hashes in, or {@code null} if it couldn't be opened
+	 * @param hashes       The hash of every registered command
+	 * @return A future completing once the registration is done, even if it failed
+	 */
+	private static CompletableFuture<Void> whenDone(
+			CompletableFuture<?> registration,
+			HashFileInterface hashFile,
+			Map<String, String> hashes
+	) {
+		return registration.handle((success, failure) -> {
+			if (failure != null) {
+				LOGGER.error("Could not register commands", failure);
+			} else if (hashFile != null) {
+				try {
+					hashFile.setHashes(hashes);
+				} catch (IOException ioe) {
+					LOGGER.warn("Could not store the hashes of registered commands", ioe);
+				}
+			}
+			if (hashFile != null) {
+				close(hashFile);
+			}
+			return null;
+		});
+	}
+
+	private static void close(HashFileInterface hashFile) {
+		try {
+			hashFile.close();
+		} catch (IOException ioe) {
+			LOGGER.warn("Could not close the hashes of registered commands", ioe);
+		}
+	}
+
+	/**
+	 * Finds which commands need to be sent to Discord, by comparing their hashes
+	 * to the hashes of the registered commands.
+	 *
+	 * @param registered The hash of every registered command, by name
+	 * @param current    The hash of every command the bot should have, by name
+	 * @return The names of the added & changed commands, and of the removed commands
+	 */
+	static Changes diff(Map<String, String> registered, Map<String, String> current) {
+		Set<String> upserted = new TreeSet<>();
+		current.forEach((name, hash) -> {
+			if (!hash.equals(registered.get(name))) {
+				upserted.add(name);
+			}
+		});
+		Set<String> removed = new TreeSet<>(registered.keySet());
+		removed.removeAll(current.keySet());
+		return new Changes(upserted, removed);
+	}
+
+	private static String hash(CommandData command) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(command.toData().toJson()));
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("SHA-256 is not supported", nsae);
+		}
+	}
+
+	/**
+	 * The commands to send to Discord, by name.
+	 */
+	static final class Changes {
+		final Set<String> upserted;
+		final Set<String> removed;
+
+		private Changes(Set<String> upserted, Set<String> removed) {
+			this.upserted = Collections.unmodifiableSet(upserted);
+			this.removed = Collections.unmodifiableSet(removed);
+		}
+
+		boolean isEmpty() {
+			return upserted.isEmpty() && removed.isEmpty();
+		}
+	}
+
+	/**
+	 * Stores the hash of every registered command, one command per line.
+	 */
+	private static final class HashFileInterface extends FileInterface<Map<String, String>> {
+		private HashFileInterface(String path) throws IOException {
+			super(path);
+		}
+
+		private Map<String, String> getHashes() {
+			return get(HashMap::new);
+		}
+
+		private void setHashes(Map<String, String> hashes) throws IOException {
+			set(new HashMap<>(hashes));
+		}
+
+		@Override
+		protected Map<String, String> fromNothing() {
+			return new HashMap<>();
+		}
+
+		@Override
+		protected Map<String, String> fromBytes(byte[] bytes) {
+			Map<String, String> hashes = new HashMap<>();
+			for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+				int separator = line.indexOf(' ');
+				if (separator != -1) {
+					hashes.put(line.substring(0, separator), line.substring(separator + 1));
+				}
+			}
+			return hashes;
+		}
+
+		@Override
+		protected byte[] toBytes(Map<String, String> value) {
+			StringBuilder builder = new StringBuilder();
+			value.forEach((name, hash) -> builder
+					.append(name)
+					.append(' ')
+					.append(hash)
+					.append('\n')
+			);
+			return builder.toString().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package no.smileyface.discordbotframework;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Forwards events to a listener that isn't created yet,
+ * so the bot can connect to the gateway while its actions are still being created.
+ * Events received before the listener is set are held back,
+ * and handled in order once it's set.
+ * Events received while held back events are handled wait for them to be handled first.</p>
+ * <p>Interactions must be acknowledged within 3 seconds of being sent by Discord.
+ * Interactions held back longer than that fail once they're handled.</p>
+ */
+final class DeferredEventListener implements EventListener {
+	private final List<GenericEvent> heldBack;
+	private volatile EventListener delegate;
+
+	DeferredEventListener() {
+		this.heldBack = new ArrayList<>();
+	}
+
+	@Override
+	public void onEvent(@NotNull GenericEvent event) {
+		EventListener listener = delegate;
+		if (listener == null) {
+			synchronized (heldBack) {
+				listener = delegate;
+				if (listener == null) {
+					heldBack.add(event);
+					return;
+				}
+			}
+		}
+		listener.onEvent(event);
+	}
+
+	/**
+	 * Sets the listener to forward events to,
+	 * and forwards every event that was held back until now.
+	 *
+	 * @param delegate The listener to forward events to
+	 */
+	void setDelegate(EventListener delegate) {
+		synchronized (heldBack) {
+			// Events arriving meanwhile wait for the lock, so they're handled after these
+			for (GenericEvent event : heldBack) {
+				delegate.onEvent(event);
+			}
+			heldBack.clear();
+			this.delegate = delegate;
+		}
+	}
+}
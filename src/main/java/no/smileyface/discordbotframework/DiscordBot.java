@@ -1,29 +1,42 @@
 package no.smileyface.discordbotframework;
 
-import java.util.Arrays;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import no.smileyface.discordbotframework.data.Node;
 import no.smileyface.discordbotframework.entities.BotAction;
 import no.smileyface.discordbotframework.files.properties.PropertyLoadException;
 import no.smileyface.discordbotframework.files.properties.PropertyLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Utility class for creating the discord bot.
  */
 public class DiscordBot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DiscordBot.class);
+
 	private final JDA jda;
 	private final Node<String, String> properties;
+	private final ActionManager actionManager;
 
 	/**
 	 * Creates the discord bot.
 	 *
 	 * @param actionManager The {@link ActionManager} for executing actions
 	 * @param properties    The properties of the bot, if they've been pre-loaded
-	 * @param intents       Any {@link GatewayIntent}s the bot requires
+	 * @param intents       Any {@link GatewayIntent}s the bot requires beyond its actions
 	 * @throws InterruptedException If the bot is interrupted while starting
 	 * @see #DiscordBot(ActionManager, GatewayIntent...)
 	 * @see #DiscordBot(Collection, Node, GatewayIntent...)
@@ -35,26 +48,206 @@ public class DiscordBot {
 			GatewayIntent... intents
 	) throws InterruptedException {
 		this.properties = properties;
+		this.actionManager = actionManager;
+		StartupTimeline timeline = actionManager.getStartupTimeline();
+		long loggingIn = System.nanoTime();
+		this.jda = actionManager
+				.getGatewayRequirements(intents)
+				.createBuilder(getBotToken(properties))
+				.addEventListeners(actionManager)
+				.build();
+		long awaitingReady = System.nanoTime();
+		timeline.addPhase(StartupTimeline.LOGIN, loggingIn, awaitingReady);
+		jda.awaitReady();
+		timeline.addPhase(StartupTimeline.READY, awaitingReady, System.nanoTime());
+		registerCommands(jda, actionManager);
+	}
+
+	private DiscordBot(JDA jda, Node<String, String> properties, ActionManager actionManager) {
+		this.jda = jda;
+		this.properties = properties;
+		this.actionManager = actionManager;
+	}
+
+	/**
+	 * Gets the token of the active bot from the properties.
+	 *
+	 * @param properties The properties of the bot
+	 * @return The bot token
+	 */
+	static String getBotToken(Node<String, String> properties) {
 		Node<String, String> botNode = properties.getChild("bot");
-		String botToken = botNode.getChild(botNode.getChild("active").getValue()).getValue();
-
-		JDABuilder builder = JDABuilder
-				.createDefault(botToken, Arrays.asList(intents))
-				.disableCache(CacheFlag.EMOJI, CacheFlag.STICKER, CacheFlag.SCHEDULED_EVENTS)
-				.addEventListeners(actionManager);
-		if (!Arrays.asList(intents).contains(GatewayIntent.GUILD_VOICE_STATES)) {
-			builder.disableCache(CacheFlag.VOICE_STATE);
+		return botNode.getChild(botNode.getChild("active").getValue()).getValue();
+	}
+
+	/**
+	 * <p>Starts the discord bot without blocking the calling thread.</p>
+	 * <p>The action manager, and with it every action & the files they load,
+	 * is created while the bot logs in & connects to the gateway.
+	 * Events received before the action manager is created are held back,
+	 * and handled as soon as it is. Interactions held back for longer than Discord's
+	 * 3 second window for acknowledging them fail once they're handled.
+	 * The returned future doesn't wait for every guild to load,
+	 * so interactions are handled as soon as the gateway is connected.
+	 * Use {@link JDA#awaitReady()} to wait for the guilds too.</p>
+	 * <p>As the bot logs in before its actions are created, it's only connected with
+	 * the given intents, and only caches what those intents keep up to date.
+	 * Every intent required by the actions must therefore be given here,
+	 * including the intents of any {@link CacheFlag}s they
+	 * require. Actions requiring cache flags without an intent can't be started this way,
+	 * use {@link #DiscordBot(ActionManager, Node, GatewayIntent...)} instead.</p>
+	 *
+	 * @param actionManagerFactory Creates the {@link ActionManager} for executing actions
+	 * @param properties           The properties of the bot
+	 * @param intents              Every {@link GatewayIntent} the bot & its actions require
+	 * @return A future completing with the bot once it's logged in,
+	 *         and any changed commands have been queued for registration.
+	 *         If the bot fails to start, the future completes exceptionally,
+	 *         any connection already made is shut down, and the action manager is closed.
+	 *         If the actions require intents or cache flags the bot wasn't started with,
+	 *         it fails with an {@link IllegalStateException}
+	 * @see #startAsync(ActionInitializer, GatewayIntent...)
+	 */
+	public static CompletableFuture<DiscordBot> startAsync(
+			Supplier<? extends ActionManager> actionManagerFactory,
+			Node<String, String> properties,
+			GatewayIntent... intents
+	) {
+		return startAsync(actionManagerFactory, () -> properties, intents);
+	}
+
+	/**
+	 * Starts the discord bot without blocking the calling thread.
+	 * The properties are loaded with {@link PropertyLoader#loadProperties()}
+	 * before the bot logs in, while actions are created.
+	 *
+	 * @param actionInitializer Initializer for all regular bot actions.
+	 *                          To start the bot with a collection of already created actions,
+	 *                          use {@code manager -> actions}
+	 * @param intents           Every {@link GatewayIntent} the bot & its actions require
+	 * @return A future completing with the bot once it's logged in,
+	 *         and any changed commands have been queued for registration
+	 * @see #startAsync(Supplier, Node, GatewayIntent...)
+	 */
+	public static CompletableFuture<DiscordBot> startAsync(
+			ActionInitializer actionInitializer,
+			GatewayIntent... intents
+	) {
+		return startAsync(() -> new ActionManager(actionInitializer), () -> {
+			try {
+				return PropertyLoader.loadProperties();
+			} catch (PropertyLoadException ple) {
+				throw new CompletionException(ple);
+			}
+		}, intents);
+	}
+
+	private static CompletableFuture<DiscordBot> startAsync(
+			Supplier<? extends ActionManager> actionManagerFactory,
+			Supplier<Node<String, String>> propertiesLoader,
+			GatewayIntent... intents
+	) {
+		ExecutorService startupExecutor = Executors.newFixedThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable, "bot-startup");
+			thread.setDaemon(true);
+			return thread;
+		});
+		DeferredEventListener listener = new DeferredEventListener();
+		// Records the phases done before the action manager, and with it its timeline, exists
+		StartupTimeline earlyTimeline = new StartupTimeline();
+		long loadingStarted = System.nanoTime();
+		CompletableFuture<Node<String, String>> loadingProperties =
+				CompletableFuture.supplyAsync(propertiesLoader, startupExecutor);
+		CompletableFuture<JDA> loggingIn = loadingProperties.thenApply(properties -> {
+			long loggingInStarted = System.nanoTime();
+			earlyTimeline.addPhase(StartupTimeline.PROPERTIES, loadingStarted, loggingInStarted);
+			JDA jda = GatewayRequirements
+					.of(List.of(), intents)
+					.createBuilder(getBotToken(properties))
+					.addEventListeners(listener)
+					.build();
+			earlyTimeline.addPhase(StartupTimeline.LOGIN, loggingInStarted, System.nanoTime());
+			return jda;
+		});
+		CompletableFuture<ActionManager> creatingActions =
+				CompletableFuture.supplyAsync(actionManagerFactory::get, startupExecutor);
+		CompletableFuture<DiscordBot> starting = loggingIn.thenCombine(
+				creatingActions,
+				(jda, actionManager) -> {
+					checkRequirements(jda, actionManager.getGatewayRequirements(intents));
+					listener.setDelegate(actionManager);
+					actionManager.getStartupTimeline().addPhases(earlyTimeline);
+					registerCommands(jda, actionManager);
+					return new DiscordBot(jda, loadingProperties.join(), actionManager);
+				}
+		);
+		return starting.whenComplete((bot, throwable) -> {
+			startupExecutor.shutdown();
+			if (throwable != null) {
+				LOGGER.error("The bot failed to start", throwable);
+				// Don't leave a connection behind without anything handling its events
+				loggingIn.thenAccept(JDA::shutdownNow);
+				creatingActions.thenAccept(ActionManager::close);
+			}
+		});
+	}
+
+	/**
+	 * Registers the commands of the bot, and logs the startup timeline once they're registered.
+	 *
+	 * @param jda           The JDA instance to register the commands for
+	 * @param actionManager The action manager of the bot
+	 */
+	static void registerCommands(JDA jda, ActionManager actionManager) {
+		StartupTimeline timeline = actionManager.getStartupTimeline();
+		long registering = System.nanoTime();
+		CommandRegistrar.register(jda, actionManager.getAllCommands()).thenRun(() -> {
+			timeline.addPhase(StartupTimeline.COMMANDS, registering, System.nanoTime());
+			timeline.log();
+		});
+	}
+
+	private static Node<String, String> loadProperties(
+			ActionManager actionManager
+	) throws PropertyLoadException {
+		long loading = System.nanoTime();
+		Node<String, String> properties = PropertyLoader.loadProperties();
+		actionManager.getStartupTimeline().addPhase(
+				StartupTimeline.PROPERTIES,
+				loading,
+				System.nanoTime()
+		);
+		return properties;
+	}
+
+	/**
+	 * Checks that the bot was started with everything its actions require.
+	 *
+	 * @param jda          The started bot
+	 * @param requirements What the bot's actions require
+	 * @throws IllegalStateException If any intents or cache flags are missing
+	 */
+	private static void checkRequirements(JDA jda, GatewayRequirements requirements) {
+		Set<GatewayIntent> missingIntents = EnumSet.noneOf(GatewayIntent.class);
+		missingIntents.addAll(requirements.getIntents());
+		missingIntents.removeAll(jda.getGatewayIntents());
+		Set<CacheFlag> missingFlags = EnumSet.noneOf(CacheFlag.class);
+		missingFlags.addAll(requirements.getCacheFlags());
+		missingFlags.removeAll(jda.getCacheFlags());
+		if (!missingIntents.isEmpty() || !missingFlags.isEmpty()) {
+			throw new IllegalStateException(String.format(
+					"The bot's actions require intents %s & cache flags %s it wasn't started with",
+					missingIntents,
+					missingFlags
+			));
 		}
-		this.jda = builder.build();
-		jda.awaitReady();
-		actionManager.addCommands(jda.updateCommands()).queue();
 	}
 
 	/**
 	 * Creates the discord bot.
 	 *
 	 * @param actionManager The {@link ActionManager} for executing actions
-	 * @param intents        Any {@link GatewayIntent}s the bot requires
+	 * @param intents        Any {@link GatewayIntent}s the bot requires beyond its actions
 	 * @throws InterruptedException If the bot is interrupted while starting
 	 * @throws PropertyLoadException If properties fail to load
 	 * @see #DiscordBot(ActionManager, Node, GatewayIntent...)
@@ -65,7 +258,7 @@ public class DiscordBot {
 			ActionManager actionManager,
 			GatewayIntent... intents
 	) throws InterruptedException, PropertyLoadException {
-		this(actionManager, PropertyLoader.loadProperties(), intents);
+		this(actionManager, loadProperties(actionManager), intents);
 	}
 
 	/**
@@ -74,7 +267,7 @@ public class DiscordBot {
 	 *
 	 * @param actions    Collection of actions to create the bot with.
 	 * @param properties The properties of the bot, if they've been pre-loaded
-	 * @param intents    Any {@link GatewayIntent}s the bot requires
+	 * @param intents    Any {@link GatewayIntent}s the bot requires beyond its actions
 	 * @throws InterruptedException If the bot is interrupted while starting
 	 * @see #DiscordBot(ActionManager, Node, GatewayIntent...)
 	 * @see #DiscordBot(ActionManager, GatewayIntent...)
@@ -93,7 +286,7 @@ public class DiscordBot {
 	 * use {@link #DiscordBot(ActionManager, GatewayIntent...)} instead.
 	 *
 	 * @param actions Collection of actions to create the bot with.
-	 * @param intents        Any {@link GatewayIntent}s the bot requires
+	 * @param intents        Any {@link GatewayIntent}s the bot requires beyond its actions
 	 * @throws InterruptedException If the bot is interrupted while starting
 	 * @throws PropertyLoadException If properties fail to load
 	 * @see #DiscordBot(ActionManager, Node, GatewayIntent...)
@@ -104,7 +297,57 @@ public class DiscordBot {
 			Collection<? extends BotAction<?>> actions,
 			GatewayIntent... intents
 	) throws InterruptedException, PropertyLoadException {
-		this(actions, PropertyLoader.loadProperties(), intents);
+		this(new ActionManager(actions), intents);
+	}
+
+	/**
+	 * <p>Shuts the bot down gracefully, so no interactions or modifications are lost:</p>
+	 * <ol>
+	 *     <li>New interactions are replied to that the bot is restarting</li>
+	 *     <li>Actions that are already running are given time to finish</li>
+	 *     <li>The latest update of every open {@link MessageEditChannel} is sent</li>
+	 *     <li>Every file {@link ActionManager#registerFile(java.io.Closeable) registered}
+	 *     to the action manager is closed, saving & syncing anything not yet written</li>
+	 *     <li>The action manager's scheduler is stopped</li>
+	 *     <li>The connection to Discord is closed,
+	 *     letting already queued requests finish if time allows</li>
+	 * </ol>
+	 * <p>Files are closed & the connection is closed even if running actions don't finish
+	 * in time, so a hanging action doesn't keep the bot from shutting down.</p>
+	 *
+	 * @param timeout The max time to wait for running actions & queued requests.
+	 *                Closing files isn't limited by this
+	 * @return If everything finished within the timeout
+	 * @throws InterruptedException If interrupted while waiting.
+	 *                              The bot is shut down right away if so
+	 */
+	public boolean shutdown(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		boolean graceful = true;
+		try {
+			actionManager.drain(timeout);
+		} catch (TimeoutException te) {
+			LOGGER.warn("Actions were still running after {}, shutting down anyway", timeout);
+			graceful = false;
+		} catch (InterruptedException ie) {
+			actionManager.close();
+			jda.shutdownNow();
+			throw ie;
+		}
+		actionManager.close();
+		jda.shutdown();
+		Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+		try {
+			if (!jda.awaitShutdown(remaining)) {
+				LOGGER.warn("Queued requests didn't finish within {}, cancelling them", timeout);
+				jda.shutdownNow();
+				graceful = false;
+			}
+		} catch (InterruptedException ie) {
+			jda.shutdownNow();
+			throw ie;
+		}
+		return graceful;
 	}
 
 	public JDA getJda() {
@@ -0,0 +1,142 @@
+package no.smileyface.discordbotframework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import no.smileyface.discordbotframework.entities.GenericBotAction;
+
+/**
+ * <p>The gateway data a bot needs, derived from what its actions & checks require.</p>
+ * <p>The bot is connected with only the derived intents, and caches only the derived
+ * {@link CacheFlag}s, so Discord doesn't send it events nobody handles,
+ * and it doesn't keep entities nobody reads. Members are only cached & chunked
+ * if they can be kept up to date by the intents:</p>
+ * <ul>
+ *     <li>Members in voice channels, if voice states are cached</li>
+ *     <li>Online members, if online statuses are cached</li>
+ *     <li>Every member, with chunking, if {@link GatewayIntent#GUILD_MEMBERS} is required</li>
+ * </ul>
+ *
+ * @see GenericBotAction#getRequiredIntents()
+ * @see GenericBotAction#getRequiredCacheFlags()
+ */
+final class GatewayRequirements {
+	private final Set<GatewayIntent> intents;
+	private final Set<CacheFlag> cacheFlags;
+
+	private GatewayRequirements(Set<GatewayIntent> intents, Set<CacheFlag> cacheFlags) {
+		this.intents = Collections.unmodifiableSet(intents);
+		this.cacheFlags = Collections.unmodifiableSet(cacheFlags);
+	}
+
+	/**
+	 * Derives the requirements of a bot.
+	 *
+	 * @param actions The actions of the bot
+	 * @param intents Any {@link GatewayIntent}s the bot requires beyond its actions.
+	 *                Entities kept up to date by these are cached as well
+	 * @return The requirements of the bot
+	 */
+	static GatewayRequirements of(
+			Collection<? extends GenericBotAction<?, ?, ?, ?, ?>> actions,
+			GatewayIntent... intents
+	) {
+		Set<GatewayIntent> requiredIntents = EnumSet.noneOf(GatewayIntent.class);
+		requiredIntents.addAll(Arrays.asList(intents));
+		Set<CacheFlag> requiredFlags = EnumSet.noneOf(CacheFlag.class);
+		for (CacheFlag flag : CacheFlag.values()) {
+			if (requiredIntents.contains(flag.getRequiredIntent())) {
+				requiredFlags.add(flag);
+			}
+		}
+		for (GenericBotAction<?, ?, ?, ?, ?> action : actions) {
+			requiredIntents.addAll(action.getRequiredIntents());
+			requiredFlags.addAll(action.getRequiredCacheFlags());
+		}
+		for (CacheFlag flag : requiredFlags) {
+			if (flag.getRequiredIntent() != null) {
+				requiredIntents.add(flag.getRequiredIntent());
+			}
+		}
+		return new GatewayRequirements(requiredIntents, requiredFlags);
+	}
+
+	Set<GatewayIntent> getIntents() {
+		return intents;
+	}
+
+	Set<CacheFlag> getCacheFlags() {
+		return cacheFlags;
+	}
+
+	/**
+	 * Gets which members to cache. Only members that can be kept up to date are cached.
+	 *
+	 * @return The member cache policy
+	 */
+	MemberCachePolicy getMemberCachePolicy() {
+		if (intents.contains(GatewayIntent.GUILD_MEMBERS)) {
+			return MemberCachePolicy.ALL;
+		}
+		List<MemberCachePolicy> policies = new ArrayList<>();
+		if (cacheFlags.contains(CacheFlag.VOICE_STATE)) {
+			policies.add(MemberCachePolicy.VOICE);
+		}
+		if (cacheFlags.contains(CacheFlag.ONLINE_STATUS)) {
+			policies.add(MemberCachePolicy.ONLINE);
+		}
+		return MemberCachePolicy.any(
+				MemberCachePolicy.NONE,
+				policies.toArray(MemberCachePolicy[]::new)
+		);
+	}
+
+	/**
+	 * Gets which guilds to request every member of when they load.
+	 *
+	 * @return Every guild if every member is cached, or else none
+	 */
+	ChunkingFilter getChunkingFilter() {
+		return intents.contains(GatewayIntent.GUILD_MEMBERS)
+				? ChunkingFilter.ALL
+				: ChunkingFilter.NONE;
+	}
+
+	/**
+	 * Creates a builder for a bot with these requirements.
+	 *
+	 * @param token The bot token
+	 * @return The created builder
+	 */
+	JDABuilder createBuilder(String token) {
+		return JDABuilder
+				.createLight(token, intents)
+				.enableCache(cacheFlags)
+				.setMemberCachePolicy(getMemberCachePolicy())
+				.setChunkingFilter(getChunkingFilter());
+	}
+
+	/**
+	 * Creates a builder for a sharded bot with these requirements.
+	 *
+	 * @param token The bot token
+	 * @return The created builder
+	 */
+	DefaultShardManagerBuilder createShardManagerBuilder(String token) {
+		return DefaultShardManagerBuilder
+				.createLight(token, intents)
+				.enableCache(cacheFlags)
+				.setMemberCachePolicy(getMemberCachePolicy())
+				.setChunkingFilter(getChunkingFilter());
+	}
+}
@@ -0,0 +1,200 @@
+package no.smileyface.discordbotframework;
+
+import java.io.Closeable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
+
+/**
+ * <p>Edits a single message, such as one showing live progress or a vote count,
+ * without sending more edits than needed.</p>
+ * <p>Updates are coalesced: The message is edited at most once per interval,
+ * and only with the latest update, dropping any updates it replaced.
+ * Updates rendering to the same content as the last edit sent are dropped as well.
+ * Updates with files are always sent, as their content can't be compared.</p>
+ *
+ * @see ActionManager#openEditChannel(net.dv8tion.jda.api.interactions.InteractionHook, Duration)
+ * @see ActionManager#openEditChannel(net.dv8tion.jda.api.entities.Message, Duration)
+ */
+public final class MessageEditChannel implements Closeable {
+	private final ScheduledExecutorService scheduler;
+	private final long intervalNanos;
+	private final Function<MessageEditData, CompletableFuture<?>> sender;
+	private final Consumer<MessageEditChannel> onClose;
+	private final LongAdder sent;
+	private final LongAdder suppressed;
+	private MessageEditData pending;
+	private ScheduledFuture<?> scheduledEdit;
+	private byte[] lastSentHash;
+	private long lastSentAt;
+	private boolean closed;
+
+	/**
+	 * Creates an edit channel.
+	 *
+	 * @param scheduler The scheduler to send coalesced edits on
+	 * @param interval  The min time between two edits
+	 * @param sender    Sends an edit to the message,
+	 *                  returning a future completing once Discord has acknowledged it
+	 * @param onClose   Accepts the channel once it's closed
+	 */
+	MessageEditChannel(
+			ScheduledExecutorService scheduler,
+			Duration interval,
+			Function<MessageEditData, CompletableFuture<?>> sender,
+			Consumer<MessageEditChannel> onClose
+	) {
+		this.scheduler = scheduler;
+		this.intervalNanos = interval.toNanos();
+		this.sender = sender;
+		this.onClose = onClose;
+		this.sent = new LongAdder();
+		this.suppressed = new LongAdder();
+		this.pending = null;
+		this.scheduledEdit = null;
+		this.lastSentHash = null;
+		this.lastSentAt = System.nanoTime() - intervalNanos;
+		this.closed = false;
+	}
+
+	/**
+	 * Updates the message. The edit is sent right away if the last edit was sent
+	 * at least an interval ago, or else once the interval has passed,
+	 * unless it's replaced by a newer update before then.
+	 *
+	 * @param data The new content of the message
+	 * @throws IllegalStateException If the channel is closed
+	 */
+	public synchronized void update(MessageEditData data) {
+		if (closed) {
+			throw new IllegalStateException("The edit channel is closed");
+		}
+		if (pending != null) {
+			discard(pending);
+		}
+		pending = data;
+		if (scheduledEdit == null) {
+			long delay = lastSentAt + intervalNanos - System.nanoTime();
+			if (delay <= 0) {
+				sendPending();
+			} else {
+				scheduledEdit = scheduler.schedule(
+						this::sendScheduled,
+						delay,
+						TimeUnit.NANOSECONDS
+				);
+			}
+		}
+	}
+
+	/**
+	 * Updates the message with new text content.
+	 *
+	 * @param content The new text content of the message
+	 * @throws IllegalStateException If the channel is closed
+	 * @see #update(MessageEditData)
+	 */
+	public void update(String content) {
+		update(MessageEditData.fromContent(content));
+	}
+
+	private synchronized void sendScheduled() {
+		scheduledEdit = null;
+		sendPending();
+	}
+
+	private void sendPending() {
+		MessageEditData data = pending;
+		pending = null;
+		if (data == null) {
+			return;
+		}
+		byte[] hash = data.getFiles().isEmpty() ? hash(data) : null;
+		if (hash != null && Arrays.equals(hash, lastSentHash)) {
+			discard(data);
+			return;
+		}
+		lastSentHash = hash;
+		lastSentAt = System.nanoTime();
+		sent.increment();
+		sender.apply(data).whenComplete((result, failure) -> {
+			if (failure != null) {
+				editFailed(hash);
+			}
+		});
+	}
+
+	/**
+	 * Forgets the content of a failed edit, so the next update with the same content
+	 * is sent instead of suppressed, and the message doesn't stay stale.
+	 *
+	 * @param hash The hash of the failed edit
+	 */
+	private synchronized void editFailed(byte[] hash) {
+		// A newer edit may have been sent since, which is kept unless it has the same content
+		if (Arrays.equals(hash, lastSentHash)) {
+			lastSentHash = null;
+		}
+	}
+
+	private void discard(MessageEditData data) {
+		suppressed.increment();
+		data.close();
+	}
+
+	private static byte[] hash(MessageEditData data) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(data.toData().toJson());
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("SHA-256 is not supported", nsae);
+		}
+	}
+
+	/**
+	 * Gets the number of edits sent to Discord.
+	 *
+	 * @return The number of sent edits
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Gets the number of updates that weren't sent,
+	 * either as they were replaced by a newer update, or didn't change the content.
+	 *
+	 * @return The number of suppressed edits
+	 */
+	public long getSuppressedCount() {
+		return suppressed.sum();
+	}
+
+	/**
+	 * Sends the latest update right away if it hasn't been sent yet,
+	 * and closes the channel. Further updates are rejected.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (scheduledEdit != null) {
+				scheduledEdit.cancel(false);
+				scheduledEdit = null;
+			}
+			sendPending();
+		}
+		onClose.accept(this);
+	}
+}
@@ -0,0 +1,222 @@
+package no.smileyface.discordbotframework;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+import no.smileyface.discordbotframework.data.Node;
+import no.smileyface.discordbotframework.entities.BotAction;
+import no.smileyface.discordbotframework.files.properties.PropertyLoadException;
+import no.smileyface.discordbotframework.files.properties.PropertyLoader;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Utility class for creating a discord bot split into several shards,
+ * for bots in too many guilds to be handled by a single connection.</p>
+ * <p>Every shard shares the same {@link ActionManager},
+ * and with it the same actions, executors & scheduler.
+ * Shards are started in parallel, as many at a time as Discord allows the bot to.
+ * Each shard handles interactions as soon as it's ready, regardless of the other shards.</p>
+ *
+ * @see DiscordBot
+ */
+public class ShardedDiscordBot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardedDiscordBot.class);
+
+	private final ShardManager shardManager;
+	private final ActionManager actionManager;
+	private final Node<String, String> properties;
+	private final Map<Integer, CompletableFuture<JDA>> readyShards;
+
+	/**
+	 * Creates the sharded discord bot, and starts its shards without waiting for them.
+	 *
+	 * @param actionManager The {@link ActionManager} for executing actions on every shard
+	 * @param properties    The properties of the bot, if they've been pre-loaded
+	 * @param shardsTotal   The total number of shards,
+	 *                      or {@code -1} to use the number recommended by Discord
+	 * @param intents       Any {@link GatewayIntent}s the bot requires beyond its actions
+	 * @see #ShardedDiscordBot(ActionManager, int, GatewayIntent...)
+	 * @see #ShardedDiscordBot(Collection, int, GatewayIntent...)
+	 */
+	public ShardedDiscordBot(
+			ActionManager actionManager,
+			Node<String, String> properties,
+			int shardsTotal,
+			GatewayIntent... intents
+	) {
+		this.properties = properties;
+		this.actionManager = actionManager;
+		this.readyShards = new ConcurrentHashMap<>();
+		this.shardManager = actionManager
+				.getGatewayRequirements(intents)
+				.createShardManagerBuilder(DiscordBot.getBotToken(properties))
+				.setShardsTotal(shardsTotal)
+				// Identifies as many shards at a time as the bot's max concurrency allows
+				.setSessionController(new ConcurrentSessionController())
+				.addEventListeners(actionManager, new ReadyListener())
+				.build();
+		// Commands are global, so they only need to be registered through one shard
+		getShardReady(0).thenAccept(jda -> DiscordBot.registerCommands(jda, actionManager));
+	}
+
+	/**
+	 * Creates the sharded discord bot, and starts its shards without waiting for them.
+	 *
+	 * @param actionManager The {@link ActionManager} for executing actions on every shard
+	 * @param shardsTotal   The total number of shards,
+	 *                      or {@code -1} to use the number recommended by Discord
+	 * @param intents       Any {@link GatewayIntent}s the bot requires beyond its actions
+	 * @throws PropertyLoadException If properties fail to load
+	 * @see #ShardedDiscordBot(ActionManager, Node, int, GatewayIntent...)
+	 */
+	public ShardedDiscordBot(
+			ActionManager actionManager,
+			int shardsTotal,
+			GatewayIntent... intents
+	) throws PropertyLoadException {
+		this(actionManager, PropertyLoader.loadProperties(), shardsTotal, intents);
+	}
+
+	/**
+	 * Creates the sharded discord bot, and starts its shards without waiting for them.
+	 * To create a bot with a custom {@link ActionManager},
+	 * use {@link #ShardedDiscordBot(ActionManager, int, GatewayIntent...)} instead.
+	 *
+	 * @param actions     Collection of actions to create the bot with.
+	 * @param shardsTotal The total number of shards,
+	 *                    or {@code -1} to use the number recommended by Discord
+	 * @param intents     Any {@link GatewayIntent}s the bot requires
+	 * @throws PropertyLoadException If properties fail to load
+	 * @see #ShardedDiscordBot(ActionManager, Node, int, GatewayIntent...)
+	 */
+	public ShardedDiscordBot(
+			Collection<? extends BotAction<?>> actions,
+			int shardsTotal,
+			GatewayIntent... intents
+	) throws PropertyLoadException {
+		this(new ActionManager(actions), shardsTotal, intents);
+	}
+
+	/**
+	 * Gets a future completing once a shard is ready.
+	 * If the shard reconnects, the future stays completed with the first ready instance.
+	 *
+	 * @param shardId The ID of the shard
+	 * @return A future completing with the shard once it's ready
+	 */
+	public CompletableFuture<JDA> getShardReady(int shardId) {
+		return readyShards.computeIfAbsent(shardId, id -> new CompletableFuture<>());
+	}
+
+	/**
+	 * Checks if a shard is ready.
+	 *
+	 * @param shardId The ID of the shard
+	 * @return If the shard has been ready
+	 */
+	public boolean isShardReady(int shardId) {
+		return getShardReady(shardId).isDone();
+	}
+
+	/**
+	 * Gets the number of shards that are ready.
+	 *
+	 * @return The number of ready shards
+	 */
+	public int getReadyShardCount() {
+		return (int) readyShards.values().stream().filter(CompletableFuture::isDone).count();
+	}
+
+	/**
+	 * Gets a future completing once every shard is ready.
+	 *
+	 * @return A future completing once every shard is ready
+	 */
+	public CompletableFuture<Void> getAllReady() {
+		return CompletableFuture.allOf(IntStream
+				.range(0, shardManager.getShardsTotal())
+				.mapToObj(this::getShardReady)
+				.toArray(CompletableFuture[]::new)
+		);
+	}
+
+	/**
+	 * Shuts every shard down gracefully, like {@link DiscordBot#shutdown(Duration)}.
+	 * Queued requests of every shard are given time to finish within the same timeout.
+	 *
+	 * @param timeout The max time to wait for running actions & queued requests.
+	 *                Closing files isn't limited by this
+	 * @return If everything finished within the timeout
+	 * @throws InterruptedException If interrupted while waiting.
+	 *                              The shards are shut down right away if so
+	 */
+	public boolean shutdown(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		boolean graceful = true;
+		try {
+			actionManager.drain(timeout);
+		} catch (TimeoutException te) {
+			LOGGER.warn("Actions were still running after {}, shutting down anyway", timeout);
+			graceful = false;
+		} catch (InterruptedException ie) {
+			actionManager.close();
+			shutdownNow(shardManager.getShards());
+			throw ie;
+		}
+		actionManager.close();
+		List<JDA> shards = shardManager.getShards();
+		// Shuts the shards down in the background, so each of them is awaited below
+		shardManager.shutdown();
+		try {
+			for (JDA shard : shards) {
+				Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+				if (!shard.awaitShutdown(remaining)) {
+					LOGGER.warn("Queued requests didn't finish within {}, cancelling them", timeout);
+					shutdownNow(shards);
+					graceful = false;
+					break;
+				}
+			}
+		} catch (InterruptedException ie) {
+			shutdownNow(shards);
+			throw ie;
+		}
+		return graceful;
+	}
+
+	private void shutdownNow(List<JDA> shards) {
+		shardManager.shutdown();
+		shards.forEach(JDA::shutdownNow);
+	}
+
+	public ShardManager getShardManager() {
+		return shardManager;
+	}
+
+	public Node<String, String> getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Completes the ready future of each shard.
+	 */
+	private final class ReadyListener extends ListenerAdapter {
+		@Override
+		public void onReady(@NotNull ReadyEvent event) {
+			getShardReady(event.getJDA().getShardInfo().getShardId()).complete(event.getJDA());
+		}
+	}
+}
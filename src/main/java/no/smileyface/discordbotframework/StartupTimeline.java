@@ -0,0 +1,332 @@
+package no.smileyface.discordbotframework;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import no.smileyface.discordbotframework.files.FileInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Records where the time goes while a bot starts:
+ * The phases of startup, how long each action took to create,
+ * and how long each file took to load while actions were created.</p>
+ * <p>The timeline is filled in by {@link ActionManager} & {@link DiscordBot},
+ * and logged as a summary once the bot has started.
+ * Phases may overlap, such as when starting with
+ * {@link DiscordBot#startAsync(ActionInitializer, net.dv8tion.jda.api.requests.GatewayIntent...)
+ * startAsync}.</p>
+ *
+ * @see ActionManager#getStartupTimeline()
+ */
+public final class StartupTimeline {
+	/**
+	 * Loading the properties of the bot.
+	 */
+	public static final String PROPERTIES = "properties";
+	/**
+	 * Creating every action, with {@link ActionInitializer#createActions(ActionManager)}.
+	 */
+	public static final String ACTIONS = "actions";
+	/**
+	 * Logging in to Discord.
+	 */
+	public static final String LOGIN = "login";
+	/**
+	 * Waiting for every guild to load, with {@link net.dv8tion.jda.api.JDA#awaitReady()}.
+	 */
+	public static final String READY = "ready";
+	/**
+	 * Registering any changed commands, until Discord has accepted them.
+	 */
+	public static final String COMMANDS = "commands";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimeline.class);
+	/**
+	 * The max number of actions & files to list in the summary.
+	 */
+	private static final int SUMMARY_LIMIT = 10;
+
+	private final List<RawEntry> phases;
+	private final List<RawEntry> actions;
+	private final List<RawEntry> fileLoads;
+	private final FileInterface.LoadListener loadListener;
+	private long origin;
+	private RawEntry creatingAction;
+	private boolean creatingActions;
+
+	StartupTimeline() {
+		this.phases = new ArrayList<>();
+		this.actions = new ArrayList<>();
+		this.fileLoads = new ArrayList<>();
+		this.loadListener = this::fileLoaded;
+		this.origin = System.nanoTime();
+		this.creatingAction = null;
+		this.creatingActions = false;
+	}
+
+	/**
+	 * Records a phase of startup.
+	 *
+	 * @param name  The name of the phase
+	 * @param start When the phase started, from {@link System#nanoTime()}
+	 * @param end   When the phase ended, from {@link System#nanoTime()}
+	 */
+	synchronized void addPhase(String name, long start, long end) {
+		origin = Math.min(origin, start);
+		phases.add(new RawEntry(name, start, end - start, -1));
+	}
+
+	/**
+	 * Records every phase of another timeline, such as one recording the phases
+	 * done before this one was created.
+	 *
+	 * @param other The timeline to copy the phases of
+	 */
+	synchronized void addPhases(StartupTimeline other) {
+		synchronized (other) {
+			for (RawEntry phase : other.phases) {
+				addPhase(phase.name, phase.start, phase.start + phase.nanos);
+			}
+		}
+	}
+
+	/**
+	 * Starts timing the creation of actions, and the files loaded meanwhile.
+	 */
+	synchronized void startCreatingActions() {
+		creatingActions = true;
+		FileInterface.addLoadListener(loadListener);
+	}
+
+	/**
+	 * Marks the start of an action being created. The action is timed until the next one starts,
+	 * or until every action has been created, so anything done between creating two actions
+	 * counts towards the first one.
+	 *
+	 * @param actionClass The class of the action
+	 */
+	synchronized void actionCreated(Class<?> actionClass) {
+		if (!creatingActions) {
+			return;
+		}
+		long now = System.nanoTime();
+		endCreatingAction(now);
+		String name = actionClass.getSimpleName().isEmpty()
+				? actionClass.getName()
+				: actionClass.getSimpleName();
+		creatingAction = new RawEntry(name, now, 0, -1);
+	}
+
+	/**
+	 * Stops timing the creation of actions, and records it as the {@link #ACTIONS} phase.
+	 *
+	 * @param start When actions started being created, from {@link System#nanoTime()}
+	 */
+	synchronized void stopCreatingActions(long start) {
+		FileInterface.removeLoadListener(loadListener);
+		long now = System.nanoTime();
+		endCreatingAction(now);
+		creatingActions = false;
+		addPhase(ACTIONS, start, now);
+	}
+
+	private void endCreatingAction(long now) {
+		if (creatingAction != null) {
+			actions.add(new RawEntry(
+					creatingAction.name,
+					creatingAction.start,
+					now - creatingAction.start,
+					-1
+			));
+			creatingAction = null;
+		}
+	}
+
+	private synchronized void fileLoaded(Path path, long bytes, Duration duration) {
+		long nanos = duration.toNanos();
+		fileLoads.add(new RawEntry(path.toString(), System.nanoTime() - nanos, nanos, bytes));
+	}
+
+	/**
+	 * Gets every recorded phase of startup, in the order they ended.
+	 *
+	 * @return The phases
+	 * @see #PROPERTIES
+	 * @see #ACTIONS
+	 * @see #LOGIN
+	 * @see #READY
+	 * @see #COMMANDS
+	 */
+	public synchronized List<Entry> getPhases() {
+		return toEntries(phases);
+	}
+
+	/**
+	 * Gets how long each action took to create, in the order they were created.
+	 * Actions are named by their class.
+	 *
+	 * @return The creation of each action
+	 */
+	public synchronized List<Entry> getActions() {
+		return toEntries(actions);
+	}
+
+	/**
+	 * Gets how long each file took to load while actions were created,
+	 * in the order they finished loading. Files are named by their path.
+	 *
+	 * @return The loading of each file
+	 */
+	public synchronized List<Entry> getFileLoads() {
+		return toEntries(fileLoads);
+	}
+
+	/**
+	 * Gets the time from the first phase started until the last one ended.
+	 *
+	 * @return The total startup time
+	 */
+	public synchronized Duration getTotal() {
+		long end = phases
+				.stream()
+				.mapToLong(phase -> phase.start + phase.nanos)
+				.max()
+				.orElse(origin);
+		return Duration.ofNanos(end - origin);
+	}
+
+	private List<Entry> toEntries(List<RawEntry> rawEntries) {
+		return rawEntries.stream().map(raw -> new Entry(
+				raw.name,
+				Duration.ofNanos(raw.start - origin),
+				Duration.ofNanos(raw.nanos),
+				raw.bytes
+		)).toList();
+	}
+
+	/**
+	 * Summarizes the timeline, listing every phase,
+	 * and the actions & files that took the longest.
+	 *
+	 * @return The summary
+	 */
+	public synchronized String summarize() {
+		StringBuilder summary = new StringBuilder()
+				.append("Started in ")
+				.append(getTotal().toMillis())
+				.append(" ms");
+		for (Entry phase : getPhases()) {
+			summary.append(String.format(
+					"%n  %-12s at %6d ms, took %6d ms",
+					phase.getName(),
+					phase.getStart().toMillis(),
+					phase.getDuration().toMillis()
+			));
+		}
+		List<Entry> slowestActions = getActions()
+				.stream()
+				.sorted(Comparator.comparing(Entry::getDuration).reversed())
+				.limit(SUMMARY_LIMIT)
+				.toList();
+		if (!slowestActions.isEmpty()) {
+			summary.append(String.format("%n  Slowest of %d actions:", actions.size()));
+			slowestActions.forEach(action -> summary.append(String.format(
+					"%n    %-40s %6d ms",
+					action.getName(),
+					action.getDuration().toMillis()
+			)));
+		}
+		List<Entry> slowestFiles = getFileLoads()
+				.stream()
+				.sorted(Comparator.comparing(Entry::getDuration).reversed())
+				.limit(SUMMARY_LIMIT)
+				.toList();
+		if (!slowestFiles.isEmpty()) {
+			long totalBytes = fileLoads.stream().mapToLong(file -> file.bytes).sum();
+			summary.append(String.format(
+					"%n  Slowest of %d files loaded, %d bytes in total:",
+					fileLoads.size(),
+					totalBytes
+			));
+			slowestFiles.forEach(file -> summary.append(String.format(
+					"%n    %-40s %6d ms, %d bytes",
+					file.getName(),
+					file.getDuration().toMillis(),
+					file.getBytes()
+			)));
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Logs the {@link #summarize() summary} of the timeline.
+	 */
+	void log() {
+		LOGGER.info(summarize());
+	}
+
+	@Override
+	public String toString() {
+		return summarize();
+	}
+
+	/**
+	 * A timed part of startup.
+	 */
+	public static final class Entry {
+		private final String name;
+		private final Duration start;
+		private final Duration duration;
+		private final long bytes;
+
+		private Entry(String name, Duration start, Duration duration, long bytes) {
+			this.name = name;
+			this.start = start;
+			this.duration = duration;
+			this.bytes = bytes;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets when this started, relative to when startup started.
+		 *
+		 * @return The start of this
+		 */
+		public Duration getStart() {
+			return start;
+		}
+
+		public Duration getDuration() {
+			return duration;
+		}
+
+		/**
+		 * Gets the number of bytes loaded.
+		 *
+		 * @return The size of the loaded file, or -1 if this isn't the loading of a file
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	private static final class RawEntry {
+		private final String name;
+		private final long start;
+		private final long nanos;
+		private final long bytes;
+
+		private RawEntry(String name, long start, long nanos, long bytes) {
+			this.name = name;
+			this.start = start;
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+	}
+}
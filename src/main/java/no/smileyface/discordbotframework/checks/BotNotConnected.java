@@ -1,6 +1,8 @@
 package no.smileyface.discordbotframework.checks;
 
+import java.util.Set;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
 /**
  * <p>Checks if the bot is not connected to a voice channel in a server.</p>
@@ -23,4 +25,10 @@ public class BotNotConnected implements Check {
 					"The bot is already connected to another voice channel");
 		}
 	}
+
+	@Override
+	public Set<CacheFlag> getRequiredCacheFlags() {
+		// The bot's own voice state tells which channel it's connected to
+		return Set.of(CacheFlag.VOICE_STATE);
+	}
 }
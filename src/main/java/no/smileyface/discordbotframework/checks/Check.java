@@ -1,6 +1,9 @@
 package no.smileyface.discordbotframework.checks;
 
+import java.util.Set;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
 /**
  * Determines if a reply-able event can be processed.
@@ -16,4 +19,24 @@ public interface Check {
 	 *                               corresponding to the specified audio manager.
 	 */
 	void check(IReplyCallback event) throws CheckFailedException;
+
+	/**
+	 * Gets the {@link GatewayIntent}s the bot must be connected with for this check to work.
+	 *
+	 * @return The required intents. None by default
+	 */
+	default Set<GatewayIntent> getRequiredIntents() {
+		return Set.of();
+	}
+
+	/**
+	 * Gets the {@link CacheFlag}s the bot must cache for this check to work.
+	 * The intents the flags require don't need to be included in
+	 * {@link #getRequiredIntents()}.
+	 *
+	 * @return The required cache flags. None by default
+	 */
+	default Set<CacheFlag> getRequiredCacheFlags() {
+		return Set.of();
+	}
 }
@@ -0,0 +1,349 @@
+package no.smileyface.discordbotframework.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>A set of primitive {@code long}s, using open addressing with linear probing.</p>
+ * <p>Each element takes 8 bytes in the table (around 11-21 bytes per element depending on
+ * how full the table is), compared to around 50 bytes for a {@code HashSet<Long>}.
+ * Use {@link #contains(long)}, {@link #add(long)} & {@link #remove(long)} to avoid boxing.</p>
+ * <p>The table can optionally be stored off-heap, in a direct buffer,
+ * holding at most around 100 million elements.</p>
+ * <p>This set is not thread-safe.</p>
+ */
+public final class LongHashSet extends AbstractSet<Long> {
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+	private static final int MAX_CAPACITY = 1 << 30;
+	/**
+	 * The max capacity of an off-heap table, as a direct buffer is at most
+	 * {@link Integer#MAX_VALUE} bytes long.
+	 */
+	private static final int MAX_OFF_HEAP_CAPACITY =
+			Integer.highestOneBit(Integer.MAX_VALUE / Long.BYTES);
+	/**
+	 * The value marking a free slot. Zero itself is tracked separately, in {@link #containsZero}.
+	 */
+	private static final long FREE = 0;
+
+	private final boolean offHeap;
+	private LongBuffer table;
+	private int mask;
+	private int maxFill;
+	private int size;
+	private boolean containsZero;
+
+	/**
+	 * Creates an empty set, stored on the heap.
+	 */
+	public LongHashSet() {
+		this(MIN_CAPACITY, false);
+	}
+
+	/**
+	 * Creates an empty set.
+	 *
+	 * @param expectedSize The number of elements the set should have room for before it grows
+	 * @param offHeap      If the table should be stored off-heap, in a direct buffer
+	 */
+	public LongHashSet(int expectedSize, boolean offHeap) {
+		this.offHeap = offHeap;
+		allocate(tableSize(expectedSize));
+	}
+
+	private int maxCapacity() {
+		return offHeap ? MAX_OFF_HEAP_CAPACITY : MAX_CAPACITY;
+	}
+
+	private int tableSize(int expectedSize) {
+		long needed = (long) Math.ceil(expectedSize / LOAD_FACTOR);
+		long capacity = Long.highestOneBit(Math.max(MIN_CAPACITY, needed - 1)) << 1;
+		if (capacity > maxCapacity()) {
+			throw new IllegalArgumentException("Too many elements: " + expectedSize);
+		}
+		return (int) capacity;
+	}
+
+	private static int mix(long value) {
+		long hash = value * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private void allocate(int capacity) {
+		this.table = offHeap
+				? ByteBuffer
+						.allocateDirect(capacity * Long.BYTES)
+						// Avoids swapping the bytes of every value read & written
+						.order(ByteOrder.nativeOrder())
+						.asLongBuffer()
+				: LongBuffer.wrap(new long[capacity]);
+		this.mask = capacity - 1;
+		this.maxFill = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void rehash(int capacity) {
+		LongBuffer oldTable = table;
+		allocate(capacity);
+		for (int i = 0; i < oldTable.capacity(); i++) {
+			long value = oldTable.get(i);
+			if (value != FREE) {
+				int slot = mix(value) & mask;
+				while (table.get(slot) != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				table.put(slot, value);
+			}
+		}
+	}
+
+	/**
+	 * Finds the slot containing a non-zero value, or the free slot where it should be inserted.
+	 */
+	private int slotOf(long value) {
+		int slot = mix(value) & mask;
+		long current;
+		while ((current = table.get(slot)) != FREE && current != value) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Checks if this set contains a value, without boxing it.
+	 *
+	 * @param value The value to check for
+	 * @return If the set contains the value
+	 */
+	public boolean contains(long value) {
+		return value == FREE ? containsZero : table.get(slotOf(value)) == value;
+	}
+
+	/**
+	 * Adds a value to this set, without boxing it.
+	 *
+	 * @param value The value to add
+	 * @return If the set changed as a result of the call
+	 */
+	public boolean add(long value) {
+		if (value == FREE) {
+			if (containsZero) {
+				return false;
+			}
+			containsZero = true;
+		} else {
+			int slot = slotOf(value);
+			if (table.get(slot) == value) {
+				return false;
+			}
+			if (size + 1 > maxFill && table.capacity() >= maxCapacity()) {
+				throw new IllegalStateException("The set is full, at " + size + " elements");
+			}
+			table.put(slot, value);
+			if (size + 1 > maxFill) {
+				rehash(table.capacity() * 2);
+			}
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes a value from this set, without boxing it.
+	 *
+	 * @param value The value to remove
+	 * @return If the set changed as a result of the call
+	 */
+	public boolean remove(long value) {
+		if (value == FREE) {
+			if (!containsZero) {
+				return false;
+			}
+			containsZero = false;
+		} else {
+			int slot = slotOf(value);
+			if (table.get(slot) != value) {
+				return false;
+			}
+			shiftKeys(slot);
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Frees a slot, shifting back any following values that would otherwise
+	 * become unreachable from their ideal slot.
+	 *
+	 * @param freedSlot The slot to free
+	 * @return The value that got shifted from the start of the table to its end,
+	 *         or {@code null} if no value wrapped around.
+	 *         Used by the iterator to avoid skipping values
+	 */
+	private Long shiftKeys(int freedSlot) {
+		int free = freedSlot;
+		Long wrappedValue = null;
+		while (true) {
+			int next = (free + 1) & mask;
+			long current;
+			while (true) {
+				current = table.get(next);
+				if (current == FREE) {
+					table.put(free, FREE);
+					return wrappedValue;
+				}
+				int ideal = mix(current) & mask;
+				// Move the value if its ideal slot isn't cyclically between the free slot & itself
+				if (free <= next ? free >= ideal || ideal > next : free >= ideal && ideal > next) {
+					break;
+				}
+				next = (next + 1) & mask;
+			}
+			if (next < free) {
+				wrappedValue = current;
+			}
+			table.put(free, current);
+			free = next;
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Long value && contains(value.longValue());
+	}
+
+	@Override
+	public boolean add(Long value) {
+		return add(value.longValue());
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof Long value && remove(value.longValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < table.capacity(); i++) {
+			table.put(i, FREE);
+		}
+		size = 0;
+		containsZero = false;
+	}
+
+	/**
+	 * Copies every value in this set into an array, without boxing them.
+	 *
+	 * @return A new array containing every value in this set, in no particular order
+	 */
+	public long[] toLongArray() {
+		long[] values = new long[size];
+		int i = 0;
+		if (containsZero) {
+			values[i++] = FREE;
+		}
+		for (int slot = 0; slot < table.capacity(); slot++) {
+			long value = table.get(slot);
+			if (value != FREE) {
+				values[i++] = value;
+			}
+		}
+		return values;
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	@NotNull
+	@Override
+	public Iterator<Long> iterator() {
+		return new LongIterator();
+	}
+
+	/**
+	 * Iterates the table from the last slot to the first.
+	 * Removing a value may shift values from the start of the table to slots that
+	 * have already been passed. Those values are remembered, and returned at the end.
+	 */
+	private final class LongIterator implements Iterator<Long> {
+		private int slot;
+		private int remaining;
+		private boolean zeroPending;
+		private LongHashSet wrapped;
+		private Iterator<Long> wrappedIterator;
+		private long last;
+		private int lastSlot;
+
+		private LongIterator() {
+			this.slot = table.capacity();
+			this.remaining = size;
+			this.zeroPending = containsZero;
+			this.lastSlot = -2;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public Long next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+			if (zeroPending) {
+				zeroPending = false;
+				last = FREE;
+				lastSlot = -1;
+				return last;
+			}
+			while (--slot >= 0) {
+				long value = table.get(slot);
+				if (value != FREE) {
+					last = value;
+					lastSlot = slot;
+					return last;
+				}
+			}
+			if (wrappedIterator == null) {
+				wrappedIterator = wrapped.iterator();
+			}
+			last = wrappedIterator.next();
+			lastSlot = -1;
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (lastSlot == -2) {
+				throw new IllegalStateException();
+			}
+			if (lastSlot == -1) {
+				LongHashSet.this.remove(last);
+			} else {
+				Long wrappedValue = shiftKeys(lastSlot);
+				size--;
+				if (wrappedValue != null) {
+					// A value from the start of the table was shifted to a slot already passed
+					if (wrapped == null) {
+						wrapped = new LongHashSet();
+					}
+					wrapped.add(wrappedValue.longValue());
+				}
+			}
+			lastSlot = -2;
+		}
+	}
+}
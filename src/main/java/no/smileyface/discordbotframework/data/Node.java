@@ -86,6 +86,15 @@ public final class Node<K, V> {
 		return Collections.unmodifiableCollection(children.values());
 	}
 
+	/**
+	 * Gets an unmodifiable map of all child nodes, by their keys.
+	 *
+	 * @return An unmodifiable map of all child nodes
+	 */
+	public Map<K, Node<K, V>> getChildMap() {
+		return Collections.unmodifiableMap(children);
+	}
+
 	/**
 	 * Checks if a child node exists.
 	 *
@@ -2,6 +2,7 @@ package no.smileyface.discordbotframework.entities;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -10,6 +11,8 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.GenericSelectMenuInteractionEvent;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import no.smileyface.discordbotframework.ActionManager;
 import no.smileyface.discordbotframework.Identifier;
 import no.smileyface.discordbotframework.checks.Check;
@@ -77,6 +80,9 @@ public abstract sealed class GenericBotAction<
 		this.modals = new HashSet<>();
 		this.selections = new HashSet<>();
 		this.checks = checks == null ? List.of() : List.of(checks);
+		if (manager != null) {
+			manager.recordActionCreation(this);
+		}
 	}
 
 	/**
@@ -150,6 +156,37 @@ public abstract sealed class GenericBotAction<
 		this.selections.addAll(Set.of(selections));
 	}
 
+	/**
+	 * <p>Gets the {@link GatewayIntent}s the bot must be connected with for this action to work.
+	 * The bot is connected with the intents required by every action it's created with.</p>
+	 * <p>By default, this is the intents required by the action's checks.
+	 * Actions reading more from the gateway, such as members or messages,
+	 * should override this to add what they read.</p>
+	 *
+	 * @return The required intents
+	 * @see #getRequiredCacheFlags()
+	 */
+	public Set<GatewayIntent> getRequiredIntents() {
+		Set<GatewayIntent> intents = EnumSet.noneOf(GatewayIntent.class);
+		checks.forEach(check -> intents.addAll(check.getRequiredIntents()));
+		return intents;
+	}
+
+	/**
+	 * <p>Gets the {@link CacheFlag}s the bot must cache for this action to work.
+	 * Every other cache flag is disabled, unless it's kept up to date by an intent the bot
+	 * was explicitly created with.</p>
+	 * <p>By default, this is the cache flags required by the action's checks.</p>
+	 *
+	 * @return The required cache flags
+	 * @see #getRequiredIntents()
+	 */
+	public Set<CacheFlag> getRequiredCacheFlags() {
+		Set<CacheFlag> cacheFlags = EnumSet.noneOf(CacheFlag.class);
+		checks.forEach(check -> cacheFlags.addAll(check.getRequiredCacheFlags()));
+		return cacheFlags;
+	}
+
 	/**
 	 * The code to execute when the action is ran. This should always acknowledge the event.
 	 *
@@ -2,6 +2,7 @@ package no.smileyface.discordbotframework.entities.generic;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -21,6 +22,7 @@ import no.smileyface.discordbotframework.entities.Identifiable;
 public abstract class GenericCommand<K extends GenericBotAction.ArgKey> implements Identifiable {
 	private final SlashCommandData data;
 	private final Collection<String> nicknames;
+	private volatile Collection<CommandData> variants;
 
 	/**
 	 * Constructor.
@@ -38,12 +40,22 @@ public abstract class GenericCommand<K extends GenericBotAction.ArgKey> implemen
 	/**
 	 * Get all variants of the command.
 	 * These variants will be identical to the original command, except the name.
+	 * The variants are only built the first time this is called.
 	 *
 	 * @return A list of command variants, one for each nickname in the `nicknames`-collection
 	 *         passed to the constructor.
 	 *         The returned collection will also include this command itself
 	 */
 	public final Collection<CommandData> getAllVariants() {
+		Collection<CommandData> built = variants;
+		if (built == null) {
+			built = Collections.unmodifiableCollection(buildVariants());
+			this.variants = built;
+		}
+		return built;
+	}
+
+	private Collection<CommandData> buildVariants() {
 		Collection<CommandData> variations = new HashSet<>();
 		variations.add(data);
 		nicknames.forEach(nickname -> variations.add(Commands
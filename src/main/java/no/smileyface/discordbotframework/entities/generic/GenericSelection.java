@@ -10,7 +10,11 @@ import no.smileyface.discordbotframework.entities.Identifiable;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * A selection menu for executing actions by selecting something.
+ * <p>A selection menu for executing actions by selecting something.</p>
+ * <p>The base selection menu is built once, when the selection is created,
+ * and the same immutable menu is reused every time it's rendered.
+ * Base menus that can't be built on their own, such as string selection menus
+ * without any options, are instead built every time they're rendered.</p>
  *
  * @param <K> Key type used for args returned from
  * 			  {@link #getSelectionArgs(GenericSelectMenuInteractionEvent)}
@@ -19,18 +23,35 @@ public abstract class GenericSelection<K extends GenericBotAction.ArgKey> implem
 	private final Supplier<SelectMenu.Builder<?, ?>> builderSupplier;
 	private final String id;
 	private final K nextValueKey;
+	/**
+	 * The prebuilt base selection menu, or {@code null} if it can't be built on its own.
+	 */
+	private final SelectMenu template;
 
 	/**
 	 * Creates an action selection.
 	 *
-	 * @param builderSupplier A supplier for the "base" selection menu to use
+	 * @param builderSupplier A supplier for the "base" selection menu to use.
+	 *                        The base menu should be the same every time,
+	 *                        as it's only built once if it can be
 	 * @param nextValueKey    The key to use for the next selected value in the value node provided
 	 *                        by {@link #getSelectionArgs(GenericSelectMenuInteractionEvent)}
 	 */
 	protected GenericSelection(Supplier<SelectMenu.Builder<?, ?>> builderSupplier, K nextValueKey) {
 		this.builderSupplier = builderSupplier;
-		this.id = builderSupplier.get().getId();
+		SelectMenu.Builder<?, ?> builder = builderSupplier.get();
+		this.id = builder.getId();
 		this.nextValueKey = nextValueKey;
+		this.template = buildTemplate(builder);
+	}
+
+	private static SelectMenu buildTemplate(SelectMenu.Builder<?, ?> builder) {
+		try {
+			return builder.build();
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			// Completed by the consumer passed to getSelectionMenu(Consumer) instead
+			return null;
+		}
 	}
 
 	public final K getNextValueKey() {
@@ -39,7 +60,8 @@ public abstract class GenericSelection<K extends GenericBotAction.ArgKey> implem
 
 	/**
 	 * Gets a modified version of this selection's {@link SelectMenu}. This does not modify the
-	 * stored selection menu, and instead creates a new instance.
+	 * stored selection menu, and instead creates a new instance
+	 * from a copy of the prebuilt menu, if there is one.
 	 *
 	 * @param buildConsumer A consumer with instructions on how to modify the selection menu.
 	 *                      If the builder accepted by this consumer were to be built
@@ -51,7 +73,12 @@ public abstract class GenericSelection<K extends GenericBotAction.ArgKey> implem
 	public final SelectMenu getSelectionMenu(
 			@NotNull Consumer<SelectMenu.Builder<?, ?>> buildConsumer
 	) {
-		SelectMenu.Builder<?, ?> builder = builderSupplier.get();
+		if (template == null) {
+			SelectMenu.Builder<?, ?> builder = builderSupplier.get();
+			buildConsumer.accept(builder);
+			return builder.build();
+		}
+		SelectMenu.Builder<?, ?> builder = template.createCopy();
 		buildConsumer.accept(builder);
 		return builder.build();
 	}
@@ -63,7 +90,7 @@ public abstract class GenericSelection<K extends GenericBotAction.ArgKey> implem
 	 * @see #getSelectionMenu(Consumer)
 	 */
 	public final SelectMenu getSelectMenu() {
-		return builderSupplier.get().build();
+		return template == null ? builderSupplier.get().build() : template;
 	}
 
 	/**
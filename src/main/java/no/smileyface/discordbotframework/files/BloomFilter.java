@@ -0,0 +1,260 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A Bloom filter over the hashes of serialized items,
+ * letting {@link CollectionFileInterface}s answer that they don't contain an item
+ * without looking at the stored collection.</p>
+ * <p>Items can't be removed from the filter, so removed items keep answering "maybe" until
+ * the filter is rebuilt. The filter is rebuilt once more items have been added to it than
+ * it was sized for, and whenever it's out of date when the collection is loaded.</p>
+ * <p>Bits are set & read atomically, so lookups don't need any lock.
+ * Adding items must be done by one thread at a time.</p>
+ *
+ * @see FileOptions#withBloomFilter(double, long)
+ */
+final class BloomFilter {
+	private static final int MAGIC = 0xC5424C4D;
+	private static final byte FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 24;
+	private static final int MIN_CAPACITY = 1024;
+	private static final int MAX_HASH_COUNT = 16;
+	private static final double LN_2 = Math.log(2);
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	private final AtomicLongArray words;
+	private final long bitCount;
+	private final int hashCount;
+	private final int capacity;
+	private int inserted;
+
+	private BloomFilter(long[] words, int hashCount, int capacity, int inserted) {
+		this.words = new AtomicLongArray(words);
+		this.bitCount = (long) words.length * Long.SIZE;
+		this.hashCount = hashCount;
+		this.capacity = capacity;
+		this.inserted = inserted;
+	}
+
+	/**
+	 * Creates an empty filter, with room for twice the expected number of items
+	 * before its false positive rate rises above the given one.
+	 *
+	 * @param expectedItems     The number of items about to be added
+	 * @param falsePositiveRate The desired false positive rate
+	 * @param maxBytes          The most memory the filter's bits may use.
+	 *                          If this is too little for the desired rate,
+	 *                          the false positive rate is higher
+	 * @return The created filter
+	 */
+	static BloomFilter create(int expectedItems, double falsePositiveRate, long maxBytes) {
+		int capacity = (int) Math.min(
+				Math.max(2L * expectedItems, MIN_CAPACITY),
+				Integer.MAX_VALUE
+		);
+		double optimalBits = -capacity * Math.log(falsePositiveRate) / (LN_2 * LN_2);
+		long bits = (long) Math.min(Math.ceil(optimalBits), maxBytes * Byte.SIZE);
+		int wordCount = (int) Math.max(1, Math.min(bits / Long.SIZE, Integer.MAX_VALUE - 8));
+		int hashCount = (int) Math.round((double) wordCount * Long.SIZE / capacity * LN_2);
+		return new BloomFilter(
+				new long[wordCount],
+				Math.max(1, Math.min(hashCount, MAX_HASH_COUNT)),
+				capacity,
+				0
+		);
+	}
+
+	/**
+	 * Hashes a serialized item, with FNV-1a followed by the finalizer of MurmurHash3
+	 * to spread the bits of short items.
+	 *
+	 * @param bytes The serialized item, from its position to its limit
+	 * @return The 64-bit hash of the item
+	 */
+	static long hash(ByteBuffer bytes) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = bytes.position(); i < bytes.limit(); i++) {
+			hash ^= bytes.get(i) & 0xFF;
+			hash *= FNV_PRIME;
+		}
+		return finish(hash);
+	}
+
+	/**
+	 * Hashes a {@code long} serialized as its 8 big-endian bytes, without serializing it.
+	 * Gives the same hash as {@link #hash(ByteBuffer)} of the serialized value.
+	 *
+	 * @param value The value to hash
+	 * @return The 64-bit hash of the value
+	 */
+	static long hash(long value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+			hash ^= (value >>> shift) & 0xFF;
+			hash *= FNV_PRIME;
+		}
+		return finish(hash);
+	}
+
+	/**
+	 * Spreads the bits of an FNV-1a hash, with the finalizer of MurmurHash3.
+	 */
+	private static long finish(long fnvHash) {
+		long hash = fnvHash;
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Adds an item to the filter.
+	 *
+	 * @param hash The {@link #hash(ByteBuffer) hash} of the serialized item
+	 */
+	void add(long hash) {
+		long first = hash;
+		long second = hash >>> 32;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(first + i * second, bitCount);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = words.get(word);
+			while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+				current = words.get(word);
+			}
+		}
+		inserted++;
+	}
+
+	/**
+	 * Checks if an item might have been added to the filter.
+	 *
+	 * @param hash The {@link #hash(ByteBuffer) hash} of the serialized item
+	 * @return False if the item has definitely not been added, true if it might have been
+	 */
+	boolean mightContain(long hash) {
+		long first = hash;
+		long second = hash >>> 32;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(first + i * second, bitCount);
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if more items have been added than the filter was sized for,
+	 * meaning its false positive rate is higher than desired.
+	 *
+	 * @return If the filter should be rebuilt
+	 */
+	boolean isSaturated() {
+		return inserted > capacity;
+	}
+
+	/**
+	 * Writes the filter to a file, atomically replacing any existing one.
+	 *
+	 * @param path  The path to write the filter to
+	 * @param stamp Identifies the state of the files the filter was built from.
+	 *              The filter is only read back if the same stamp is given
+	 * @throws IOException If the filter couldn't be written
+	 */
+	void write(Path path, long[] stamp) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(
+				HEADER_LENGTH + Long.BYTES * (stamp.length + words.length())
+		);
+		buffer.putInt(MAGIC)
+				.put(FORMAT_VERSION)
+				.put((byte) stamp.length)
+				.put(new byte[2])
+				.putInt(hashCount)
+				.putInt(capacity)
+				.putInt(inserted)
+				.putInt(words.length());
+		for (long value : stamp) {
+			buffer.putLong(value);
+		}
+		for (int i = 0; i < words.length(); i++) {
+			buffer.putLong(words.get(i));
+		}
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(
+				tempPath,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(
+				tempPath,
+				path,
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING
+		);
+	}
+
+	/**
+	 * Reads a filter written by {@link #write(Path, long[])}, and deletes it.
+	 * The filter is only written again once its file interface is closed,
+	 * so a filter left by a process that crashed after modifying the file is never trusted,
+	 * even if the stamp can't tell the modification apart.
+	 *
+	 * @param path  The path to read the filter from
+	 * @param stamp The stamp the filter must have been written with
+	 * @return The read filter, or {@code null} if there's no filter,
+	 *         or the filter is out of date or unreadable
+	 * @throws IOException If the file couldn't be read or deleted
+	 */
+	static BloomFilter read(Path path, long[] stamp) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		Files.delete(path);
+		FileInterface.syncDirectory(path);
+		if (buffer.remaining() < HEADER_LENGTH + Long.BYTES * stamp.length
+				|| buffer.getInt() != MAGIC
+				|| buffer.get() != FORMAT_VERSION
+				|| buffer.get() != stamp.length) {
+			return null;
+		}
+		buffer.position(buffer.position() + 2);
+		int hashCount = buffer.getInt();
+		int capacity = buffer.getInt();
+		int inserted = buffer.getInt();
+		int wordCount = buffer.getInt();
+		long[] writtenStamp = new long[stamp.length];
+		for (int i = 0; i < stamp.length; i++) {
+			writtenStamp[i] = buffer.getLong();
+		}
+		if (!Arrays.equals(stamp, writtenStamp)
+				|| wordCount <= 0
+				|| hashCount <= 0
+				|| buffer.remaining() != (long) wordCount * Long.BYTES) {
+			return null;
+		}
+		long[] words = new long[wordCount];
+		buffer.asLongBuffer().get(words);
+		return new BloomFilter(words, hashCount, capacity, inserted);
+	}
+}
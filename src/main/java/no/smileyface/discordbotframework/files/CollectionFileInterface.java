@@ -1,13 +1,28 @@
 package no.smileyface.discordbotframework.files;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.dv8tion.jda.api.utils.IOFunction;
@@ -17,6 +32,16 @@ import org.jetbrains.annotations.NotNull;
  * An interface for persistent storage of collections, serialized as bytes.
  * <p><b>Note: Elements in this collection should <i>not</i> be modified after being added,
  * as this will not save the updated element</b></p>
+ * <p>If {@link FileOptions#withAppendLog(long) append-only logging} is enabled,
+ * modifications are appended to a log file next to the main file instead of
+ * rewriting the whole collection. The log is compacted into the main file in the background,
+ * and is replayed when the collection is loaded.</p>
+ * <p>Collections are saved in a compact format, starting with a versioned header.
+ * Files saved in the original header-less format can still be read,
+ * and are migrated to the compact format the next time they're saved.</p>
+ * <p>If a {@link FileOptions#withBloomFilter(double, long) Bloom filter} is enabled,
+ * lookups of elements the filter rules out return right away,
+ * without looking at the collection or waiting for it to load.</p>
  *
  * @param <T> The collection type
  */
@@ -24,8 +49,38 @@ public abstract class CollectionFileInterface<T>
 		extends FileInterface<Collection<T>>
 		implements Collection<T> {
 	private static final Logger LOGGER = Logger.getLogger(CollectionFileInterface.class.getName());
+	private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "collection-log-compactor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final byte LOG_ADD = 1;
+	private static final byte LOG_REMOVE = 2;
+	private static final byte LOG_CLEAR = 3;
+
+	/**
+	 * Starts the header of files saved in the compact format.
+	 * The first byte is negative, so the header-less format can only be mistaken for this
+	 * if its first element was serialized to start with the exact same bytes.
+	 */
+	private static final int HEADER_MAGIC = 0xC5434649;
+	private static final byte FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 8;
 
 	private final int fixedLength;
+	private final ItemCodec<T> byteArrayCodec;
+	private final Path logPath;
+	private final Path compactingLogPath;
+	private final Path bloomFilterPath;
+	private final ItemWriter pendingRecords;
+	private final ThreadLocal<ItemWriter> hashWriters;
+	private volatile BloomFilter bloomFilter;
+	private volatile SoftReference<Snapshot<T>> snapshot;
+	private FileChannel logChannel;
+	private int unwrittenRecords;
+	private long replayedBytes;
+	private Future<?> compaction;
 
 	/**
 	 * Creates the file interface, with dynamic length for each serialized element.
@@ -48,9 +103,65 @@ public abstract class CollectionFileInterface<T>
 	 * @throws IOException If the file at the provided path cannot be read
 	 */
 	protected CollectionFileInterface(String path, int fixedLength) throws IOException {
-		super(path, false);
+		this(path, fixedLength, FileOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates the file interface, with dynamic length for each serialized element.
+	 *
+	 * @param path    The path to the file this interface is for
+	 * @param options The {@link FileOptions} for how the collection is persisted
+	 * @throws IOException If the file at the provided path cannot be read
+	 * @see #CollectionFileInterface(String)
+	 */
+	protected CollectionFileInterface(String path, FileOptions options) throws IOException {
+		this(path, -1, options);
+	}
+
+	/**
+	 * Creates the file interface, with a fixed length for each serialized element.
+	 *
+	 * @param path        The path to the file this interface is for
+	 * @param fixedLength The fixed length of each serialized element
+	 * @param options     The {@link FileOptions} for how the collection is persisted
+	 * @throws IOException If the file at the provided path cannot be read
+	 * @see #CollectionFileInterface(String, int)
+	 */
+	protected CollectionFileInterface(
+			String path,
+			int fixedLength,
+			FileOptions options
+	) throws IOException {
+		super(path, false, options);
 		this.fixedLength = fixedLength;
-		load();
+		this.byteArrayCodec = new ItemCodec<>() {
+			@Override
+			public T read(ByteBuffer buffer, int offset, int length) {
+				byte[] bytes = new byte[length];
+				buffer.get(offset, bytes);
+				return itemFromBytes(bytes);
+			}
+
+			@Override
+			public int write(T item, ByteBuffer buffer, int offset) {
+				byte[] bytes = itemToBytes(item);
+				buffer.put(offset, bytes);
+				return bytes.length;
+			}
+		};
+		this.logPath = getPath().resolveSibling(getPath().getFileName() + ".log");
+		this.compactingLogPath = getPath().resolveSibling(getPath().getFileName() + ".log.old");
+		this.bloomFilterPath = getPath().resolveSibling(getPath().getFileName() + ".bloom");
+		this.pendingRecords = new ItemWriter(64);
+		this.hashWriters = ThreadLocal.withInitial(() -> new ItemWriter(64));
+		this.snapshot = new SoftReference<>(null);
+		this.unwrittenRecords = 0;
+		this.replayedBytes = 0;
+		if (options.isBloomFilter()) {
+			// Lets lookups be ruled out before the collection is loaded
+			this.bloomFilter = BloomFilter.read(bloomFilterPath, bloomFilterStamp());
+		}
+		startLoading();
 	}
 
 	private <U> boolean ioSuccessOrLog(IOFunction<U, Boolean> ioFunction, U item) {
@@ -76,7 +187,7 @@ public abstract class CollectionFileInterface<T>
 
 	@Override
 	public boolean contains(Object o) {
-		return get(collection -> collection.contains(o));
+		return !isRuledOutByBloomFilter(o) && get(collection -> collection.contains(o));
 	}
 
 	@NotNull
@@ -242,6 +353,44 @@ public abstract class CollectionFileInterface<T>
 		modify(Collection::clear);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>Unlike iterating & removing elements through {@link IoIterator},
+	 * this saves the collection once, no matter how many elements are removed.
+	 * A call to {@link #removeIfChecked(Predicate)} is preferred over this.</p>
+	 *
+	 * @see #removeIfChecked(Predicate)
+	 */
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		return ioSuccessOrLog(this::removeIfChecked, filter);
+	}
+
+	/**
+	 * Same as {@link #removeIf(Predicate)}, but throws an {@link IOException}
+	 * if saving the collection happens to throw one.
+	 * A call to this is preferred over {@link #removeIf(Predicate)}.
+	 * If the filter throws, no elements are removed.
+	 *
+	 * @param filter A predicate which returns true for elements to be removed
+	 * @return True if any elements were removed
+	 * @throws IOException If saving the collection to a file threw one
+	 */
+	public boolean removeIfChecked(Predicate<? super T> filter) throws IOException {
+		return batchAndGet(collection -> collection.removeIf(filter));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Modifications made directly to the collection given to the batch
+	 * are logged & filtered like any other modification.
+	 * The collection must not be used after the batch returns.</p>
+	 */
+	@Override
+	public void batch(Consumer<Collection<T>> batch) throws IOException {
+		super.batch(batch);
+	}
+
 	/**
 	 * Create an item from an array of serialized bytes.
 	 *
@@ -258,79 +407,555 @@ public abstract class CollectionFileInterface<T>
 	 */
 	protected abstract byte[] itemToBytes(T item);
 
+	/**
+	 * <p>Gets the codec used to read & write items straight from & to the shared buffers
+	 * used when loading & saving.</p>
+	 * <p>By default, this adapts {@link #itemFromBytes(byte[])} & {@link #itemToBytes(Object)},
+	 * which allocates an array for every item.
+	 * Implementations should override this to avoid that allocation where possible.</p>
+	 *
+	 * @return The item codec for this collection
+	 */
+	protected ItemCodec<T> getItemCodec() {
+		return byteArrayCodec;
+	}
+
+	/**
+	 * Creates the empty collection that elements are stored in.
+	 * Creates a {@link HashSet} by default.
+	 * <p><b>NB: This is called while this interface is being constructed,
+	 * and must therefore not depend on any fields of the implementing class.</b></p>
+	 *
+	 * @param expectedSize The number of elements that are about to be added
+	 * @return The created collection
+	 */
+	protected Collection<T> createCollection(int expectedSize) {
+		return new HashSet<>((int) (expectedSize / 0.75f) + 1);
+	}
+
+	/**
+	 * Same as {@link #get(Function)}, but applies the function to the collection created by
+	 * {@link #createCollection(int)} itself, rather than any wrapper used for append-only logging
+	 * or the Bloom filter.
+	 *
+	 * @param valueFunction The function to apply to the collection.
+	 *                      This should not modify the collection's state
+	 * @param <R>           The return type of the value function
+	 * @return The return value of the value function
+	 */
+	protected final <R> R getBacking(Function<Collection<T>, R> valueFunction) {
+		return get(collection -> valueFunction.apply(unwrap(collection)));
+	}
+
+	/**
+	 * Same as {@link #getBacking(Function)}, but applied optimistically,
+	 * as described by {@link #getOptimistically(Function)}.
+	 *
+	 * @param valueFunction The function to apply to the collection.
+	 *                      This must be safe to apply while the collection is modified
+	 * @param <R>           The return type of the value function
+	 * @return The return value of the value function
+	 */
+	final <R> R getBackingOptimistically(Function<Collection<T>, R> valueFunction) {
+		return getOptimistically(collection -> valueFunction.apply(unwrap(collection)));
+	}
+
+	/**
+	 * Gets a snapshot of the collection, shared by every iterator
+	 * created until the collection is modified again.
+	 * The snapshot is softly referenced, so it's only kept while memory allows.
+	 *
+	 * @return The snapshot
+	 */
+	private List<T> getSnapshot() {
+		return get(collection -> {
+			long version = getModificationCount();
+			Snapshot<T> cached = snapshot.get();
+			if (cached != null && cached.version == version) {
+				return cached.items;
+			}
+			List<T> items = snapshotOf(unwrap(collection));
+			snapshot = new SoftReference<>(new Snapshot<>(version, items));
+			return items;
+		});
+	}
+
+	/**
+	 * Copies the collection into a list that is never modified.
+	 *
+	 * @param collection The collection created by {@link #createCollection(int)}
+	 * @return The copy of the collection
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> snapshotOf(Collection<T> collection) {
+		return Arrays.asList((T[]) collection.toArray());
+	}
+
 	@Override
 	protected final Collection<T> fromNothing() {
-		return new HashSet<>();
+		return wrap(createCollection(0));
 	}
 
 	@Override
 	protected final Collection<T> fromBytes(byte[] bytes) {
-		Collection<T> items = fromNothing();
-		int currentPosition = 0;
-		while (currentPosition < bytes.length) {
-			int length;
-			if (fixedLength == -1) {
-				length = ByteBuffer.wrap(Arrays.copyOfRange(
-						bytes,
-						currentPosition,
-						currentPosition + 4
-				)).getInt();
-				currentPosition += 4;
+		return fromBuffer(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Elements are decoded one by one, straight from the buffer.
+	 * Both the compact & the header-less format are supported.</p>
+	 */
+	@Override
+	protected final Collection<T> fromBuffer(ByteBuffer buffer) {
+		if (buffer.remaining() >= HEADER_LENGTH
+				&& buffer.getInt(buffer.position()) == HEADER_MAGIC) {
+			byte version = buffer.get(buffer.position() + Integer.BYTES);
+			if (version != FORMAT_VERSION) {
+				throw new IllegalStateException(String.format(
+						"\"%s\" is saved in an unsupported format (version %s)",
+						getPath(),
+						version
+				));
+			}
+			buffer.position(buffer.position() + HEADER_LENGTH);
+			int count = Math.toIntExact(readVarint(buffer));
+			Collection<T> items = createCollection(count);
+			readCompact(buffer, items, count);
+			return wrap(items);
+		}
+		ItemCodec<T> codec = getItemCodec();
+		Collection<T> items = createCollection(fixedLength > 0
+				? buffer.remaining() / fixedLength
+				: 0
+		);
+		while (buffer.hasRemaining()) {
+			items.add(readItem(codec, buffer));
+		}
+		return wrap(items);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Elements are saved in the compact format,
+	 * starting with a header containing the format version.</p>
+	 */
+	@Override
+	protected final byte[] toBytes(Collection<T> value) {
+		Collection<T> items = unwrap(value);
+		ItemWriter writer = new ItemWriter(HEADER_LENGTH + (fixedLength == -1
+				? Math.max(64, items.size() * 16)
+				: items.size() * fixedLength + 5
+		));
+		writer.writeInt(HEADER_MAGIC);
+		writer.writeByte(FORMAT_VERSION);
+		// Flags & reserved bytes
+		writer.writeByte((byte) 0);
+		writer.writeByte((byte) 0);
+		writer.writeByte((byte) 0);
+		writer.writeVarint(items.size());
+		writeCompact(items, writer);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Writes every item in the compact format, after the header & the number of items.
+	 * By default, items are written one by one,
+	 * prefixed by their length as a varint unless the length is fixed.
+	 *
+	 * @param items  The items to write
+	 * @param writer The writer to write the items to
+	 */
+	void writeCompact(Collection<T> items, ItemWriter writer) {
+		ItemCodec<T> codec = getItemCodec();
+		for (T item : items) {
+			writer.writeCompact(codec, item);
+		}
+	}
+
+	/**
+	 * Reads every item written by {@link #writeCompact(Collection, ItemWriter)}.
+	 *
+	 * @param buffer The buffer to read from, positioned after the number of items
+	 * @param items  The collection to add the items to
+	 * @param count  The number of items to read
+	 * @throws BufferUnderflowException If the buffer doesn't contain every item
+	 */
+	void readCompact(ByteBuffer buffer, Collection<T> items, int count) {
+		ItemCodec<T> codec = getItemCodec();
+		for (int i = 0; i < count; i++) {
+			int length = fixedLength == -1 ? Math.toIntExact(readVarint(buffer)) : fixedLength;
+			if (length > buffer.remaining()) {
+				throw new BufferUnderflowException();
+			}
+			int offset = buffer.position();
+			items.add(codec.read(buffer, offset, length));
+			buffer.position(offset + length);
+		}
+	}
+
+	/**
+	 * Reads an unsigned varint, 7 bits at a time with the least significant bits first.
+	 *
+	 * @param buffer The buffer to read from. Its position is moved to the end of the varint
+	 * @return The read value
+	 * @throws BufferUnderflowException If the buffer ends before the varint does
+	 */
+	static long readVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Varint is longer than 10 bytes");
+	}
+
+	/**
+	 * Reads a single serialized item, prefixed by its length unless the length is fixed.
+	 *
+	 * @param codec  The codec to read the item with
+	 * @param buffer The buffer to read from, positioned at the start of the item.
+	 *               Its position is moved to the end of the item
+	 * @return The read item
+	 * @throws BufferUnderflowException If the buffer doesn't contain the whole item
+	 */
+	private T readItem(ItemCodec<T> codec, ByteBuffer buffer) {
+		int length = fixedLength == -1 ? buffer.getInt() : fixedLength;
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		int offset = buffer.position();
+		T item = codec.read(buffer, offset, length);
+		buffer.position(offset + length);
+		return item;
+	}
+
+	/**
+	 * Checks if the stored collection is wrapped, to keep the append-only log
+	 * or the Bloom filter updated. If so, modifications must go through the wrapper.
+	 *
+	 * @return If the stored collection is wrapped
+	 */
+	final boolean isWrapped() {
+		return getOptions().isAppendLog() || getOptions().isBloomFilter();
+	}
+
+	private Collection<T> wrap(Collection<T> collection) {
+		return isWrapped() ? new TrackedCollection(collection) : collection;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Collection<T> unwrap(Collection<T> collection) {
+		return collection instanceof CollectionFileInterface<?>.TrackedCollection tracked
+				? (Collection<T>) tracked.delegate
+				: collection;
+	}
+
+	/**
+	 * Checks if the Bloom filter rules out that the collection contains an element,
+	 * without looking at the collection.
+	 *
+	 * @param o The element to check for
+	 * @return True if the collection definitely doesn't contain the element,
+	 *         false if it might, or if there's no Bloom filter
+	 */
+	final boolean isRuledOutByBloomFilter(Object o) {
+		BloomFilter filter = bloomFilter;
+		if (filter == null || o == null) {
+			return false;
+		}
+		try {
+			return !filter.mightContain(bloomFilterHash(o));
+		} catch (ClassCastException cce) {
+			// Not an element the codec can serialize, so let the collection decide
+			return false;
+		}
+	}
+
+	/**
+	 * Same as {@link #isRuledOutByBloomFilter(Object)}, but for a {@code long} element
+	 * serialized as its 8 big-endian bytes, without boxing it.
+	 *
+	 * @param l The element to check for
+	 * @return True if the collection definitely doesn't contain the element,
+	 *         false if it might, or if there's no Bloom filter
+	 */
+	final boolean isRuledOutByBloomFilter(long l) {
+		BloomFilter filter = bloomFilter;
+		return filter != null && !filter.mightContain(BloomFilter.hash(l));
+	}
+
+	@SuppressWarnings("unchecked")
+	private long bloomFilterHash(Object item) {
+		ItemWriter writer = hashWriters.get();
+		writer.reset();
+		writer.write(getItemCodec(), (T) item);
+		return BloomFilter.hash(writer.toBuffer());
+	}
+
+	private BloomFilter createBloomFilter(Collection<T> items) {
+		BloomFilter filter = BloomFilter.create(
+				items.size(),
+				getOptions().getBloomFalsePositiveRate(),
+				getOptions().getBloomMaxBytes()
+		);
+		for (T item : items) {
+			filter.add(bloomFilterHash(item));
+		}
+		return filter;
+	}
+
+	/**
+	 * Identifies the current state of the main file & the append-only logs,
+	 * so a persisted Bloom filter is only used if none of them have changed since.
+	 */
+	private long[] bloomFilterStamp() throws IOException {
+		Path[] paths = {getPath(), logPath, compactingLogPath};
+		long[] stamp = new long[paths.length * 2];
+		for (int i = 0; i < paths.length; i++) {
+			if (Files.exists(paths[i])) {
+				stamp[2 * i] = Files.size(paths[i]);
+				stamp[2 * i + 1] = Files.getLastModifiedTime(paths[i]).to(TimeUnit.NANOSECONDS);
 			} else {
-				length = fixedLength;
+				stamp[2 * i] = -1;
+			}
+		}
+		return stamp;
+	}
+
+	@Override
+	protected void set(Collection<T> value) throws IOException {
+		if (isWrapped()) {
+			// Replace the contents instead, so the replacement is tracked like any other change
+			List<T> items = new ArrayList<>(value);
+			modify(collection -> {
+				collection.clear();
+				collection.addAll(items);
+			});
+		} else {
+			// Copied, as subclasses may rely on the type of collection they create
+			Collection<T> copy = createCollection(value.size());
+			copy.addAll(value);
+			super.set(copy);
+		}
+	}
+
+	@Override
+	protected void afterRollback(Collection<T> value) {
+		// Neither the records nor the filtered elements of the rolled back batch apply anymore.
+		// Records left by a failed write are kept, as the snapshot includes their changes
+		pendingRecords.truncate(unwrittenRecords);
+		if (bloomFilter != null) {
+			this.bloomFilter = createBloomFilter(unwrap(value));
+		}
+	}
+
+	@Override
+	protected void afterLoad() throws IOException {
+		if (getOptions().isAppendLog()) {
+			Collection<T> collection = get(this::unwrap);
+			this.replayedBytes = replayLog(compactingLogPath, collection)
+					+ replayLog(logPath, collection);
+			this.logChannel = FileChannel.open(
+					logPath,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND
+			);
+			if (replayedBytes > 0) {
+				// Fold the recovered log into the main file right away
+				save();
+				clearLogs();
 			}
+		}
+		if (getOptions().isBloomFilter() && bloomFilter == null) {
+			this.bloomFilter = get(collection -> createBloomFilter(unwrap(collection)));
+		}
+	}
 
-			items.add(itemFromBytes(Arrays.copyOfRange(
-					bytes,
-					currentPosition,
-					currentPosition + length
-			)));
-			currentPosition += length;
+	/**
+	 * Replays an append-only log onto a collection.
+	 * If the log ends with a partially written record, the partial record is discarded.
+	 *
+	 * @param log        The path to the log file
+	 * @param collection The collection to replay the log onto
+	 * @return The length of the replayed records
+	 * @throws IOException If the log cannot be read, or is corrupt
+	 */
+	private long replayLog(Path log, Collection<T> collection) throws IOException {
+		if (!Files.exists(log)) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(log));
+		ItemCodec<T> codec = getItemCodec();
+		int validLength = 0;
+		try {
+			while (buffer.hasRemaining()) {
+				byte operation = buffer.get();
+				switch (operation) {
+					case LOG_ADD -> collection.add(readItem(codec, buffer));
+					case LOG_REMOVE -> collection.remove(readItem(codec, buffer));
+					case LOG_CLEAR -> collection.clear();
+					default -> throw new IOException(String.format(
+							"Corrupt log record in \"%s\" at position %s",
+							log,
+							validLength
+					));
+				}
+				validLength = buffer.position();
+			}
+		} catch (BufferUnderflowException bue) {
+			LOGGER.log(Level.WARNING, "Discarding partially written record at the end of {0}", log);
+			try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+				channel.truncate(validLength);
+			}
 		}
-		return items;
+		return validLength;
 	}
 
 	@Override
-	protected final byte[] toBytes(Collection<T> value) {
-		return value
-				.stream()
-				.map(item -> {
-					byte[] bytes;
-					if (fixedLength == -1) {
-						byte[] itemBytes = itemToBytes(item);
-						byte[] lengthBytes = ByteBuffer
-								.allocate(4)
-								.putInt(itemBytes.length)
-								.array();
-						bytes = new byte[itemBytes.length + 4];
-						System.arraycopy(lengthBytes, 0, bytes, 0, lengthBytes.length);
-						System.arraycopy(itemBytes, 0, bytes, 4, itemBytes.length);
-					} else {
-						bytes = itemToBytes(item);
-						if (bytes.length != fixedLength) {
-							throw new IllegalStateException("An item got serialized to a length "
-									+ "different from the set fixed length");
-						}
-					}
-					return bytes;
-				}).collect(
-						ByteArrayOutputStream::new,
-						ByteArrayOutputStream::writeBytes,
-						(a, b) -> a.writeBytes(b.toByteArray())
-				)
-				.toByteArray();
+	final long getReplayedBytes() {
+		return replayedBytes;
+	}
+
+	@Override
+	protected boolean persistIncrementally(Collection<T> value) throws IOException {
+		if (!getOptions().isAppendLog()) {
+			return false;
+		}
+		if (pendingRecords.size() > 0) {
+			ByteBuffer records = pendingRecords.toBuffer();
+			long logSize = logChannel.size();
+			try {
+				while (records.hasRemaining()) {
+					logChannel.write(records);
+				}
+				applyDurability(logChannel);
+			} catch (IOException ioe) {
+				// Keep the records, so they're written again along with the next modification
+				unwrittenRecords = pendingRecords.size();
+				try {
+					logChannel.truncate(logSize);
+				} catch (IOException truncateException) {
+					ioe.addSuppressed(truncateException);
+				}
+				throw ioe;
+			}
+			pendingRecords.reset();
+			unwrittenRecords = 0;
+		}
+		if (logChannel.size() > getOptions().getLogCompactionThreshold()
+				&& (compaction == null || compaction.isDone())) {
+			startCompaction(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Starts compacting the append-only log into the main file.
+	 * The collection is serialized right away, and the current log is set aside,
+	 * while the slow part of writing the new snapshot to disk is done in the background.
+	 * Should the snapshot fail to be written, the set-aside log is kept
+	 * & will be replayed on the next load.
+	 *
+	 * @param value The stored collection
+	 * @throws IOException If the log couldn't be set aside
+	 */
+	private void startCompaction(Collection<T> value) throws IOException {
+		byte[] snapshot = toBytes(value);
+		logChannel.close();
+		if (Files.exists(compactingLogPath)) {
+			// A previous compaction failed, keep its records in front of the current ones
+			Files.write(compactingLogPath, Files.readAllBytes(logPath), StandardOpenOption.APPEND);
+			Files.delete(logPath);
+		} else {
+			Files.move(logPath, compactingLogPath);
+		}
+		this.logChannel = FileChannel.open(
+				logPath,
+				StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+		);
+		this.compaction = COMPACTOR.submit(() -> {
+			try {
+				write(snapshot);
+				Files.delete(compactingLogPath);
+			} catch (IOException ioe) {
+				LOGGER.log(Level.WARNING, "Could not compact the append-only log, "
+						+ "it will be replayed on the next load instead", ioe);
+			}
+		});
+	}
+
+	private void awaitCompaction() throws IOException {
+		if (compaction != null) {
+			try {
+				compaction.get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for log compaction", ie);
+			} catch (ExecutionException ee) {
+				throw new IOException("Log compaction failed", ee.getCause());
+			}
+		}
+	}
+
+	private void clearLogs() throws IOException {
+		logChannel.truncate(0);
+		Files.deleteIfExists(compactingLogPath);
+	}
+
+	@Override
+	protected void sync() throws IOException {
+		super.sync();
+		if (logChannel != null && logChannel.isOpen()) {
+			logChannel.force(false);
+		}
+	}
+
+	/**
+	 * Waits for any ongoing log compaction, closes the append-only log,
+	 * and persists the Bloom filter.
+	 *
+	 * @throws IOException If an I/O exception occurred while closing the log,
+	 *                     or persisting the Bloom filter
+	 */
+	@Override
+	public void close() throws IOException {
+		if (logChannel != null) {
+			awaitCompaction();
+		}
+		super.close();
+		if (logChannel != null) {
+			logChannel.close();
+		}
+		// A filter that's not loaded was read from the unchanged file, and is written back
+		BloomFilter filter = bloomFilter;
+		if (filter != null) {
+			filter.write(bloomFilterPath, bloomFilterStamp());
+		}
 	}
 
 	/**
 	 * Iterator that will make sure to keep the file updated
 	 * if changes are made to the underlying collection during iteration.
+	 * It iterates over a snapshot of the collection taken when the iterator was created,
+	 * so other threads may safely modify the collection during iteration.
+	 * Iterators created while the collection is unmodified share the same snapshot.
+	 * <p>Every removal saves the collection.
+	 * To remove many elements, use {@link #removeIfChecked(Predicate)}
+	 * or {@link #batch(Consumer)} instead, which save it once.</p>
 	 */
 	public class IoIterator implements Iterator<T> {
 		private final Iterator<T> collectionIterator;
 		private T currentNext;
 
 		private IoIterator() {
-			this.collectionIterator = get(Collection::iterator);
+			this.collectionIterator = getSnapshot().iterator();
 		}
 
 		@Override
@@ -367,8 +992,11 @@ public abstract class CollectionFileInterface<T>
 		 * @throws IOException If saving the collection to a file threw one
 		 */
 		public void removeChecked() throws IOException {
-			collectionIterator.remove();
+			if (currentNext == null) {
+				throw new IllegalStateException("next() has not been called");
+			}
 			CollectionFileInterface.this.removeChecked(currentNext);
+			currentNext = null;
 		}
 
 		@Override
@@ -376,4 +1004,244 @@ public abstract class CollectionFileInterface<T>
 			collectionIterator.forEachRemaining(action);
 		}
 	}
+
+	/**
+	 * Wraps the stored collection when append-only logging or the Bloom filter is enabled.
+	 * If logging, a log record is recorded for every element that is added or removed,
+	 * which is appended to the log once the modification is persisted.
+	 * Added elements are added to the Bloom filter.
+	 */
+	private class TrackedCollection extends AbstractCollection<T> {
+		private final Collection<T> delegate;
+
+		private TrackedCollection(Collection<T> delegate) {
+			this.delegate = delegate;
+		}
+
+		private void record(byte operation, T item) {
+			if (!getOptions().isAppendLog()) {
+				return;
+			}
+			pendingRecords.writeByte(operation);
+			if (item != null) {
+				pendingRecords.write(getItemCodec(), item);
+			}
+		}
+
+		@Override
+		public int size() {
+			return delegate.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return delegate.contains(o);
+		}
+
+		@Override
+		public boolean add(T t) {
+			boolean added = delegate.add(t);
+			if (added) {
+				record(LOG_ADD, t);
+				addToBloomFilter(t);
+			}
+			return added;
+		}
+
+		private void addToBloomFilter(T item) {
+			BloomFilter filter = bloomFilter;
+			if (filter == null) {
+				return;
+			}
+			if (filter.isSaturated()) {
+				// The item is already in the delegate, so it's added by the rebuild
+				bloomFilter = createBloomFilter(delegate);
+			} else {
+				filter.add(bloomFilterHash(item));
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean remove(Object o) {
+			boolean removed = delegate.remove(o);
+			if (removed) {
+				record(LOG_REMOVE, (T) o);
+			}
+			return removed;
+		}
+
+		@Override
+		public void clear() {
+			delegate.clear();
+			record(LOG_CLEAR, null);
+			if (bloomFilter != null) {
+				bloomFilter = createBloomFilter(delegate);
+			}
+		}
+
+		@NotNull
+		@Override
+		public Iterator<T> iterator() {
+			Iterator<T> iterator = delegate.iterator();
+			return new Iterator<>() {
+				private T current;
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+					current = iterator.next();
+					return current;
+				}
+
+				@Override
+				public void remove() {
+					iterator.remove();
+					record(LOG_REMOVE, current);
+				}
+			};
+		}
+	}
+
+	/**
+	 * A growable buffer that items are serialized into, one after another,
+	 * each prefixed by its length unless the length is fixed.
+	 */
+	final class ItemWriter {
+		private ByteBuffer buffer;
+		private int position;
+
+		private ItemWriter(int initialCapacity) {
+			this.buffer = ByteBuffer.allocate(Math.max(initialCapacity, 16));
+			this.position = 0;
+		}
+
+		private void grow() {
+			if (buffer.capacity() == Integer.MAX_VALUE) {
+				throw new IllegalStateException("Serialized collection is too large");
+			}
+			int capacity = (int) Math.min((long) buffer.capacity() * 2, Integer.MAX_VALUE);
+			ByteBuffer grown = ByteBuffer.allocate(capacity);
+			grown.put(0, buffer, 0, position);
+			this.buffer = grown;
+		}
+
+		void writeByte(byte b) {
+			if (position == buffer.capacity()) {
+				grow();
+			}
+			buffer.put(position++, b);
+		}
+
+		private void writeInt(int i) {
+			while (position + Integer.BYTES > buffer.capacity()) {
+				grow();
+			}
+			buffer.putInt(position, i);
+			position += Integer.BYTES;
+		}
+
+		/**
+		 * Writes an unsigned varint, 7 bits at a time with the least significant bits first.
+		 *
+		 * @param value The value to write, treated as unsigned
+		 * @see #readVarint(ByteBuffer)
+		 */
+		void writeVarint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				writeByte((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			writeByte((byte) value);
+		}
+
+		/**
+		 * Writes an item in the compact format,
+		 * prefixed by its length as a varint unless the length is fixed.
+		 */
+		private void writeCompact(ItemCodec<T> codec, T item) {
+			if (fixedLength != -1) {
+				write(codec, item);
+				return;
+			}
+			while (true) {
+				try {
+					// Assume a 1-byte prefix, and move the item if a longer one is needed
+					int length = codec.write(item, buffer, position + 1);
+					int prefixLength = varintLength(length);
+					if (prefixLength > 1) {
+						if (position + prefixLength + length > buffer.capacity()) {
+							grow();
+							continue;
+						}
+						buffer.put(position + prefixLength, buffer, position + 1, length);
+					}
+					writeVarint(length);
+					position += length;
+					return;
+				} catch (IndexOutOfBoundsException ioobe) {
+					grow();
+				}
+			}
+		}
+
+		private static int varintLength(int value) {
+			return Math.max(1, (Integer.SIZE - Integer.numberOfLeadingZeros(value) + 6) / 7);
+		}
+
+		private void write(ItemCodec<T> codec, T item) {
+			int prefixLength = fixedLength == -1 ? 4 : 0;
+			while (true) {
+				try {
+					int length = codec.write(item, buffer, position + prefixLength);
+					if (prefixLength > 0) {
+						buffer.putInt(position, length);
+					} else if (length != fixedLength) {
+						throw new IllegalStateException("An item got serialized to a length "
+								+ "different from the set fixed length");
+					}
+					position += prefixLength + length;
+					return;
+				} catch (IndexOutOfBoundsException ioobe) {
+					grow();
+				}
+			}
+		}
+
+		private int size() {
+			return position;
+		}
+
+		private void reset() {
+			this.position = 0;
+		}
+
+		private void truncate(int length) {
+			this.position = Math.min(position, length);
+		}
+
+		private ByteBuffer toBuffer() {
+			return buffer.duplicate().position(0).limit(position);
+		}
+
+		private byte[] toByteArray() {
+			return position == buffer.capacity()
+					? buffer.array()
+					: Arrays.copyOf(buffer.array(), position);
+		}
+	}
+
+	private static final class Snapshot<T> {
+		private final long version;
+		private final List<T> items;
+
+		private Snapshot(long version, List<T> items) {
+			this.version = version;
+			this.items = items;
+		}
+	}
 }
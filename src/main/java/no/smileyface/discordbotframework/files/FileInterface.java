@@ -1,22 +1,96 @@
 package no.smileyface.discordbotframework.files;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * An interface for persistent storage of any object, serialized as bytes.
+ * <p>An interface for persistent storage of any object, serialized as bytes.</p>
+ * <p>The file is always replaced atomically, by writing to a temporary file
+ * and renaming it over the original. How soon written data is forced to disk
+ * is set by the {@link FileOptions.Durability durability} in the {@link FileOptions}.</p>
+ * <p>The stored value is guarded by a {@link StampedLock}. Reads through {@link #get(Function)}
+ * hold a read lock, while modifications are exclusive. When saving, the value is serialized
+ * while holding a read lock, but the slow part of writing it to disk is done without any lock.</p>
+ * <p>With {@link FileOptions#withWriteBehind(Duration) write-behind} enabled,
+ * modifications don't save at all. Saves are instead coalesced & done in the background,
+ * and {@link #flush()} can be used to wait for them.</p>
+ * <p>With {@link FileOptions#withLoading(FileOptions.Loading) lazy or background loading},
+ * the value isn't loaded when the file interface is created,
+ * and the first access to the value waits for it to load.</p>
  *
  * @param <T> The object type to store
  */
-public abstract class FileInterface<T> {
-	private static final Path BASE_PATH = FileSystems.getDefault().getPath("botFiles");
+public abstract class FileInterface<T> implements Closeable {
+	private static final Logger LOGGER = Logger.getLogger(FileInterface.class.getName());
+	static final Path BASE_PATH = FileSystems.getDefault().getPath("botFiles");
+	/**
+	 * Files of this size or larger are memory-mapped when loaded, instead of read into the heap.
+	 */
+	private static final long MAP_THRESHOLD = 1024 * 1024;
+	static final ScheduledExecutorService SYNCER =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "file-syncer");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private static final ExecutorService LOADER = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(),
+			runnable -> {
+				Thread thread = new Thread(runnable, "file-loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+	);
+	private static final ScheduledExecutorService WRITER =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "file-writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private static final Collection<LoadListener> LOAD_LISTENERS = new CopyOnWriteArrayList<>();
 
 	private final Path path;
+	private final Path tempPath;
+	private final FileOptions options;
+	private final AtomicBoolean syncScheduled;
+	private final StampedLock lock;
+	private final ReentrantLock saveLock;
+	private final AtomicLong snapshotVersion;
+	private final Object loadLock;
+	private volatile boolean loaded;
+	private volatile Thread loadingThread;
+	private final Object writeBehindLock;
+	private CompletableFuture<Void> pendingSave;
+	private CompletableFuture<Void> lastSave;
+	private long savedVersion;
+	private long modifications;
 	private T value;
 
 	/**
@@ -33,21 +107,57 @@ public abstract class FileInterface<T> {
 	 * Creates the file interface.
 	 *
 	 * @param path The path to the file this interface is for
-	 * @param load If the stored value should be immediately loaded from the serialized file
+	 * @param load If the stored value should be loaded from the serialized file,
+	 *             as set by {@link FileOptions#withLoading(FileOptions.Loading)}
 	 * @throws IOException If the file at the provided path cannot be read
 	 */
 	protected FileInterface(String path, boolean load) throws IOException {
+		this(path, load, FileOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path    The path to the file this interface is for
+	 * @param load    If the stored value should be loaded from the serialized file,
+	 *                as set by {@link FileOptions#withLoading(FileOptions.Loading)}
+	 * @param options The {@link FileOptions} for how the value is persisted
+	 * @throws IOException If the file at the provided path cannot be read
+	 */
+	protected FileInterface(String path, boolean load, FileOptions options) throws IOException {
 		this.path = BASE_PATH.resolve(path);
+		this.tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+		this.options = options;
+		this.syncScheduled = new AtomicBoolean(false);
+		this.lock = new StampedLock();
+		this.saveLock = new ReentrantLock();
+		this.snapshotVersion = new AtomicLong();
+		this.loadLock = new Object();
+		this.loaded = false;
+		this.loadingThread = null;
+		this.writeBehindLock = new Object();
+		this.pendingSave = null;
+		this.lastSave = CompletableFuture.completedFuture(null);
+		this.savedVersion = 0;
+		this.modifications = 0;
 		try {
 			Files.createFile(this.path);
 		} catch (FileAlreadyExistsException ignored) {
 			// File exists, all good
 		}
 		if (load) {
-			load();
+			startLoading();
 		}
 	}
 
+	protected final Path getPath() {
+		return path;
+	}
+
+	protected final FileOptions getOptions() {
+		return options;
+	}
+
 	/**
 	 * Set the stored value.
 	 * Can be overridden and made public.
@@ -56,8 +166,11 @@ public abstract class FileInterface<T> {
 	 * @throws IOException If The new value can't be saved
 	 */
 	protected void set(T value) throws IOException {
+		ensureLoaded();
+		long stamp = lock.writeLock();
+		modifications++;
 		this.value = value;
-		save();
+		saveModified(stamp);
 	}
 
 	/**
@@ -68,8 +181,10 @@ public abstract class FileInterface<T> {
 	 * @see #modifyAndGet(Function)
 	 */
 	protected final void modify(Consumer<T> valueConsumer) throws IOException {
-		valueConsumer.accept(value);
-		save();
+		modifyAndGet(value -> {
+			valueConsumer.accept(value);
+			return null;
+		});
 	}
 
 	/**
@@ -79,14 +194,73 @@ public abstract class FileInterface<T> {
 	 * If the value's state is updated, these updates will not be saved.
 	 * For modifying the state of the object,
 	 * use {@link #modify(Consumer)} or {@link #modifyAndGet(Function)}</p>
+	 * <p>The function is applied while holding a read lock.
+	 * It should not return anything that gives access to the value itself, like an iterator,
+	 * as the value may be modified once the lock is released.</p>
 	 *
 	 * @param valueFunction The function to apply to the value.
 	 *                      This should not modify the value's state
 	 * @param <R>           The return type of the value function
 	 * @return The return value of the value function
+	 * @throws UncheckedIOException If the value wasn't loaded yet, and loading it failed
 	 */
 	protected final <R> R get(Function<T, R> valueFunction) {
-		return valueFunction.apply(value);
+		try {
+			ensureLoaded();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		long stamp = lock.readLock();
+		try {
+			return valueFunction.apply(value);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * <p>Same as {@link #get(Function)}, but first applies the function optimistically
+	 * without locking, and only applies it again while holding a read lock
+	 * if the value was modified in the meantime.</p>
+	 * <p>The function may see the value in the middle of being modified,
+	 * so it must only be used for reads known to be safe in that state:
+	 * Reads that always terminate, have no side effects,
+	 * and can at worst throw a {@link RuntimeException}, such as a lookup in a
+	 * {@link no.smileyface.discordbotframework.data.LongHashSet LongHashSet}.</p>
+	 *
+	 * @param valueFunction The function to apply to the value
+	 * @param <R>           The return type of the value function
+	 * @return The return value of the value function
+	 * @throws UncheckedIOException If the value wasn't loaded yet, and loading it failed
+	 */
+	final <R> R getOptimistically(Function<T, R> valueFunction) {
+		try {
+			ensureLoaded();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				R returnValue = valueFunction.apply(value);
+				if (lock.validate(stamp)) {
+					return returnValue;
+				}
+			} catch (RuntimeException re) {
+				// The value was likely modified while being read, retry with a read lock
+			}
+		}
+		return get(valueFunction);
+	}
+
+	/**
+	 * Gets the number of times the stored value has been set or modified.
+	 * Must be called while holding a lock, such as from within {@link #get(Function)}.
+	 *
+	 * @return The modification count
+	 */
+	final long getModificationCount() {
+		return modifications;
 	}
 
 	/**
@@ -94,6 +268,7 @@ public abstract class FileInterface<T> {
 	 * and returns something dependent on the value's state.
 	 * If the value may never be modified as a result of the function,
 	 * use {@link #get(Function)} instead.
+	 * The function is applied while holding an exclusive write lock.
 	 *
 	 * @param valueFunction A function that may update the state of the value
 	 * @param <R>           The return tpe of the value function
@@ -102,28 +277,526 @@ public abstract class FileInterface<T> {
 	 * @see #modify(Consumer)
 	 */
 	protected final <R> R modifyAndGet(Function<T, R> valueFunction) throws IOException {
-		R returnValue = valueFunction.apply(value);
-		save();
+		ensureLoaded();
+		long stamp = lock.writeLock();
+		modifications++;
+		R returnValue;
+		try {
+			returnValue = valueFunction.apply(value);
+			if (persistIncrementally(value)) {
+				lock.unlockWrite(stamp);
+				return returnValue;
+			}
+		} catch (IOException | RuntimeException e) {
+			lock.unlockWrite(stamp);
+			throw e;
+		}
+		saveModified(stamp);
+		return returnValue;
+	}
+
+	/**
+	 * <p>Applies a batch of modifications to the stored value as a single transaction,
+	 * and persists them all at once when the batch is done,
+	 * instead of once for every modification.</p>
+	 * <p>If the batch throws, the value is rolled back to its state before the batch,
+	 * nothing is saved, and the exception is rethrown.
+	 * To be able to roll back, the value is serialized before the batch is applied.</p>
+	 * <p>The batch is applied while holding an exclusive write lock,
+	 * so it must not call any other methods of this file interface.
+	 * Can be overridden and made public.</p>
+	 *
+	 * @param batch A consumer that may update the state of the value
+	 * @throws IOException If an I/O exception occurred while saving the value
+	 * @see #batchAndGet(Function)
+	 */
+	protected void batch(Consumer<T> batch) throws IOException {
+		batchAndGet(value -> {
+			batch.accept(value);
+			return null;
+		});
+	}
+
+	/**
+	 * Same as {@link #batch(Consumer)}, but returns something dependent on the value's state.
+	 *
+	 * @param batchFunction A function that may update the state of the value
+	 * @param <R>           The return type of the batch function
+	 * @return The return value of the batch function
+	 * @throws IOException If an I/O exception occurred while saving the value
+	 */
+	protected final <R> R batchAndGet(Function<T, R> batchFunction) throws IOException {
+		ensureLoaded();
+		long stamp = lock.writeLock();
+		modifications++;
+		R returnValue;
+		try {
+			// A value that's still null is rolled back to null, as there's nothing to serialize
+			byte[] snapshot = value == null ? null : toBytes(value);
+			try {
+				returnValue = batchFunction.apply(value);
+			} catch (RuntimeException re) {
+				this.value = snapshot == null ? null : fromBytes(snapshot);
+				afterRollback(value);
+				throw re;
+			}
+			if (persistIncrementally(value)) {
+				lock.unlockWrite(stamp);
+				return returnValue;
+			}
+		} catch (IOException | RuntimeException e) {
+			lock.unlockWrite(stamp);
+			throw e;
+		}
+		saveModified(stamp);
 		return returnValue;
 	}
 
+	/**
+	 * Loads the stored value as set by {@link FileOptions#withLoading(FileOptions.Loading)}:
+	 * Right away, in the background, or not until it's first accessed.
+	 *
+	 * @throws IOException If the value is loaded right away, and the file cannot be read
+	 */
+	protected final void startLoading() throws IOException {
+		switch (options.getLoading()) {
+			case EAGER -> load();
+			case LAZY -> {
+				// Loaded on first access
+			}
+			case BACKGROUND -> LOADER.execute(() -> {
+				try {
+					ensureLoaded();
+				} catch (IOException ioe) {
+					LOGGER.log(Level.WARNING, "Could not load " + path
+							+ " in the background, retrying on first access", ioe);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Checks if the stored value has been loaded.
+	 *
+	 * @return If the stored value has been loaded
+	 * @see FileOptions#withLoading(FileOptions.Loading)
+	 */
+	public final boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Loads the stored value if it hasn't been loaded yet,
+	 * or waits for it to load if it's being loaded by another thread.
+	 *
+	 * @throws IOException If the file cannot be read
+	 */
+	private void ensureLoaded() throws IOException {
+		if (loaded || loadingThread == Thread.currentThread()) {
+			return;
+		}
+		synchronized (loadLock) {
+			if (!loaded) {
+				load();
+			}
+		}
+	}
+
+	/**
+	 * Loads the stored value from the serialized file.
+	 * Large files are memory-mapped and passed to {@link #fromBuffer(ByteBuffer)},
+	 * so they're never copied into the heap as a whole.
+	 * Compressed files are decompressed first, and always passed to {@link #fromBytes(byte[])}.
+	 *
+	 * @throws IOException If the file cannot be read
+	 */
 	protected final void load() throws IOException {
-		byte[] bytes = Files.readAllBytes(this.path);
-		if (bytes.length > 0) {
-			set(fromBytes(bytes));
-		} else {
-			set(fromNothing());
+		long start = System.nanoTime();
+		long size;
+		// Lets afterLoad() access the value before it's marked as loaded
+		loadingThread = Thread.currentThread();
+		try {
+			size = loadFile();
+		} finally {
+			loadingThread = null;
+		}
+		notifyLoaded(path, size + getReplayedBytes(), start);
+	}
+
+	/**
+	 * Gets the number of bytes replayed onto the value while loading it,
+	 * from files other than the main file, such as append-only logs.
+	 *
+	 * @return The number of replayed bytes, 0 by default
+	 */
+	long getReplayedBytes() {
+		return 0;
+	}
+
+	/**
+	 * Notifies every {@link LoadListener} that a file has been loaded.
+	 *
+	 * @param path  The path to the loaded file
+	 * @param bytes The number of bytes loaded
+	 * @param start When loading started, from {@link System#nanoTime()}
+	 */
+	static void notifyLoaded(Path path, long bytes, long start) {
+		Duration duration = Duration.ofNanos(System.nanoTime() - start);
+		for (LoadListener listener : LOAD_LISTENERS) {
+			listener.onLoaded(path, bytes, duration);
+		}
+	}
+
+	/**
+	 * Adds a listener notified whenever any file interface has loaded its file,
+	 * including {@link MapFileInterface}s & {@link SortedLongFileInterface}s being opened.
+	 *
+	 * @param listener The listener to add
+	 */
+	public static void addLoadListener(LoadListener listener) {
+		LOAD_LISTENERS.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by {@link #addLoadListener(LoadListener)}.
+	 *
+	 * @param listener The listener to remove
+	 */
+	public static void removeLoadListener(LoadListener listener) {
+		LOAD_LISTENERS.remove(listener);
+	}
+
+	private long loadFile() throws IOException {
+		T loadedValue;
+		long size;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			size = channel.size();
+			if (size == 0) {
+				loadedValue = fromNothing();
+			} else if (size < MAP_THRESHOLD) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+					// Keep reading until the whole file is read
+				}
+				loadedValue = PayloadCompression.isCompressed(buffer.flip())
+						? fromBytes(PayloadCompression.decompress(buffer))
+						: fromBytes(buffer.array());
+			} else if (size <= Integer.MAX_VALUE) {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				loadedValue = PayloadCompression.isCompressed(buffer)
+						? fromBytes(PayloadCompression.decompress(buffer))
+						: fromBuffer(buffer);
+			} else {
+				throw new IOException(String.format(
+						"\"%s\" is too large to be loaded (%s bytes)",
+						path,
+						size
+				));
+			}
 		}
+		long stamp = lock.writeLock();
+		modifications++;
+		this.value = loadedValue;
+		lock.unlockWrite(stamp);
+		afterLoad();
+		this.loaded = true;
+		return size;
 	}
 
+	/**
+	 * Called after the stored value has been loaded from the serialized file.
+	 * Does nothing by default.
+	 *
+	 * @throws IOException If an I/O exception occurred
+	 */
+	protected void afterLoad() throws IOException {
+		// Nothing to do by default
+	}
+
+	/**
+	 * Called after a failed {@link #batch(Consumer) batch} has been rolled back,
+	 * while still holding the write lock. Does nothing by default.
+	 *
+	 * @param value The stored value, as it was before the batch
+	 */
+	protected void afterRollback(T value) {
+		// Nothing to do by default
+	}
+
+	/**
+	 * <p>Persists the stored value incrementally after it has been modified through
+	 * {@link #modify(Consumer)} or {@link #modifyAndGet(Function)},
+	 * instead of saving the whole value.</p>
+	 * <p>This is called while holding the write lock, so it must not call
+	 * {@link #get(Function)} or any of the modifying methods. Returns {@code false} by default.</p>
+	 *
+	 * @param value The stored value
+	 * @return If the modification was persisted. If {@code false}, the whole value is saved
+	 * @throws IOException If an I/O exception occurred while persisting the value
+	 */
+	protected boolean persistIncrementally(T value) throws IOException {
+		return false;
+	}
+
+	/**
+	 * Serializes the whole stored value, and writes it to the file.
+	 *
+	 * @throws IOException If an I/O exception occurred while writing the file
+	 */
 	protected final void save() throws IOException {
-		Files.write(path, value == null ? new byte[]{} : toBytes(value));
+		ensureLoaded();
+		saveLocked(lock.readLock());
+	}
+
+	/**
+	 * Saves the stored value after it has been modified,
+	 * or schedules a save in the background if write-behind is enabled.
+	 *
+	 * @param stamp The stamp of a held write lock
+	 * @throws IOException If an I/O exception occurred while writing the file
+	 */
+	private void saveModified(long stamp) throws IOException {
+		if (!options.isWriteBehind()) {
+			saveLocked(stamp);
+			return;
+		}
+		lock.unlockWrite(stamp);
+		synchronized (writeBehindLock) {
+			if (pendingSave == null) {
+				pendingSave = new CompletableFuture<>();
+				WRITER.schedule(
+						this::savePending,
+						options.getWriteBehindWindow().toMillis(),
+						TimeUnit.MILLISECONDS
+				);
+			}
+		}
+	}
+
+	/**
+	 * Saves the stored value if a write-behind save is pending, and completes its future.
+	 * Since the value is serialized when the save starts, not when it's scheduled,
+	 * it includes every modification made up to that point.
+	 */
+	private void savePending() {
+		CompletableFuture<Void> saving;
+		synchronized (writeBehindLock) {
+			saving = pendingSave;
+			if (saving == null) {
+				// Already saved by an earlier flush
+				return;
+			}
+			pendingSave = null;
+			lastSave = saving;
+		}
+		try {
+			save();
+			saving.complete(null);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Could not save " + path + " in the background", e);
+			saving.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * <p>Saves any modifications that are waiting to be saved in the background right away,
+	 * without waiting for the rest of the {@link FileOptions#withWriteBehind(Duration)
+	 * write-behind} window.</p>
+	 * <p>If write-behind is disabled, modifications are saved before they return,
+	 * and the returned future is always complete.</p>
+	 *
+	 * @return A future completing once every modification made before this call
+	 *         has been written to the file, or completing exceptionally if the save failed
+	 */
+	public final CompletableFuture<Void> flush() {
+		synchronized (writeBehindLock) {
+			if (pendingSave == null) {
+				return lastSave;
+			}
+			WRITER.execute(this::savePending);
+			return pendingSave;
+		}
+	}
+
+	/**
+	 * Serializes the stored value while holding the lock of the provided stamp,
+	 * releases the lock, and then writes the serialized value to the file.
+	 * A write lock is converted to a read lock, so readers aren't kept out while serializing.
+	 * If a newer snapshot has already been written by the time this one is ready,
+	 * this one is discarded.
+	 *
+	 * @param stamp The stamp of a held read or write lock
+	 * @throws IOException If an I/O exception occurred while writing the file
+	 */
+	private void saveLocked(long stamp) throws IOException {
+		byte[] bytes;
+		long version;
+		try {
+			stamp = lock.tryConvertToReadLock(stamp);
+			version = snapshotVersion.incrementAndGet();
+			bytes = value == null ? new byte[]{} : toBytes(value);
+		} finally {
+			lock.unlock(stamp);
+		}
+		bytes = PayloadCompression.compress(bytes, options.getCompression());
+		saveLock.lock();
+		try {
+			if (version > savedVersion) {
+				writeFile(bytes);
+				savedVersion = version;
+			}
+		} finally {
+			saveLock.unlock();
+		}
+	}
+
+	/**
+	 * Atomically replaces the contents of the file with already serialized bytes.
+	 * The bytes are compressed if set in the {@link FileOptions},
+	 * and written to a temporary file, which is forced to disk & then renamed over the file.
+	 *
+	 * @param bytes The serialized bytes to write
+	 * @throws IOException If an I/O exception occurred while writing the file
+	 */
+	protected final void write(byte[] bytes) throws IOException {
+		byte[] compressed = PayloadCompression.compress(bytes, options.getCompression());
+		saveLock.lock();
+		try {
+			writeFile(compressed);
+		} finally {
+			saveLock.unlock();
+		}
+	}
+
+	private void writeFile(byte[] bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(
+				tempPath,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			// Forced in every mode, or a crash could leave the renamed file empty or torn.
+			// The modes only differ in when the rename itself is made durable
+			channel.force(true);
+		}
+		Files.move(
+				tempPath,
+				path,
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING
+		);
+		switch (options.getDurability()) {
+			case SYNC -> syncDirectory(path);
+			case PERIODIC -> scheduleSync();
+			case BUFFERED -> {
+				// Leave flushing to the OS
+			}
+		}
+	}
+
+	/**
+	 * Makes data written to a channel as durable as the configured
+	 * {@link FileOptions.Durability durability} requires.
+	 * Should be called after writing to any channel other than through {@link #write(byte[])}.
+	 *
+	 * @param channel The channel that was written to
+	 * @throws IOException If the channel couldn't be forced to disk
+	 */
+	protected final void applyDurability(FileChannel channel) throws IOException {
+		switch (options.getDurability()) {
+			case SYNC -> channel.force(false);
+			case PERIODIC -> scheduleSync();
+			case BUFFERED -> {
+				// Leave flushing to the OS
+			}
+		}
+	}
+
+	private void scheduleSync() {
+		if (syncScheduled.compareAndSet(false, true)) {
+			SYNCER.schedule(() -> {
+				syncScheduled.set(false);
+				try {
+					sync();
+				} catch (IOException ioe) {
+					LOGGER.log(Level.WARNING, "Could not force " + path + " to disk", ioe);
+				}
+			}, options.getSyncInterval().toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Forces everything written to this interface's file(s) to disk.
+	 * Implementations writing to other files or channels should override this,
+	 * and make sure to call this parent method.
+	 *
+	 * @throws IOException If an I/O exception occurred while forcing data to disk
+	 */
+	protected void sync() throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		syncDirectory(path);
+	}
+
+	/**
+	 * Forces the directory containing a file to disk, making renames of the file durable.
+	 *
+	 * @param file The file in the directory to force to disk
+	 */
+	static void syncDirectory(Path file) {
+		try (FileChannel directory = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+			directory.force(true);
+		} catch (IOException ioe) {
+			// Not all platforms support syncing directories, the rename is still atomic
+		}
+	}
+
+	/**
+	 * Releases any resources held by this file interface, saving any modifications
+	 * waiting to be saved in the background, and forcing any data that's not yet synced to disk.
+	 *
+	 * @throws IOException If an I/O exception occurred while releasing resources
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush().get();
+		} catch (ExecutionException ee) {
+			throw new IOException("Could not save " + path, ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while saving " + path);
+		}
+		if (syncScheduled.getAndSet(false)) {
+			sync();
+		}
 	}
 
 	protected T fromNothing() {
 		return null;
 	}
 
+	/**
+	 * <p>Converts a buffer containing the serialized value into a real value.
+	 * The buffer may be memory-mapped directly from the file,
+	 * and should not be kept around after this returns.</p>
+	 * <p>This copies the buffer into an array, and calls {@link #fromBytes(byte[])} by default.
+	 * Implementations that can decode straight from the buffer should override this.</p>
+	 *
+	 * @param buffer The buffer containing the serialized value, from its position to its limit
+	 * @return The recreated value
+	 */
+	protected T fromBuffer(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return fromBytes(bytes);
+	}
+
 	/**
 	 * Converts the serialized value into a real values.
 	 *
@@ -139,4 +812,23 @@ public abstract class FileInterface<T> {
 	 * @return The serialized bytes
 	 */
 	protected abstract byte[] toBytes(T value);
+
+	/**
+	 * Listens for file interfaces loading their files, such as to time startup.
+	 *
+	 * @see #addLoadListener(LoadListener)
+	 */
+	@FunctionalInterface
+	public interface LoadListener {
+		/**
+		 * Called after a file interface has loaded its file, on the thread that loaded it.
+		 * This should return quickly.
+		 *
+		 * @param path     The path to the loaded file
+		 * @param bytes    The size of the file, including any log replayed onto it
+		 * @param duration How long it took to load & deserialize the file,
+		 *                 including {@link FileInterface#afterLoad()}
+		 */
+		void onLoaded(Path path, long bytes, Duration duration);
+	}
 }
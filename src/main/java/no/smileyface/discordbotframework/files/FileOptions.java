@@ -0,0 +1,340 @@
+package no.smileyface.discordbotframework.files;
+
+import java.time.Duration;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Immutable options for how a {@link FileInterface} persists its value.</p>
+ * <p>Options are created by starting from {@link #DEFAULT},
+ * and chaining any {@code with...} methods for the desired options.
+ * Each of these return a new instance, leaving the original unchanged.</p>
+ */
+public final class FileOptions {
+	/**
+	 * The default options, used by file interfaces that don't specify any.
+	 */
+	public static final FileOptions DEFAULT = new FileOptions();
+
+	private long logCompactionThreshold;
+	private Durability durability;
+	private Duration syncInterval;
+	private boolean offHeap;
+	private Duration writeBehindWindow;
+	private Compression compression;
+	private Loading loading;
+	private double bloomFalsePositiveRate;
+	private long bloomMaxBytes;
+
+	private FileOptions() {
+		this.logCompactionThreshold = -1;
+		this.durability = Durability.SYNC;
+		this.syncInterval = Duration.ofSeconds(1);
+		this.compression = Compression.NONE;
+		this.loading = Loading.EAGER;
+	}
+
+	private FileOptions copy() {
+		FileOptions copy = new FileOptions();
+		copy.logCompactionThreshold = logCompactionThreshold;
+		copy.durability = durability;
+		copy.syncInterval = syncInterval;
+		copy.offHeap = offHeap;
+		copy.writeBehindWindow = writeBehindWindow;
+		copy.compression = compression;
+		copy.loading = loading;
+		copy.bloomFalsePositiveRate = bloomFalsePositiveRate;
+		copy.bloomMaxBytes = bloomMaxBytes;
+		return copy;
+	}
+
+	/**
+	 * <p>Enables append-only log persistence. Only applies to {@link CollectionFileInterface}s.</p>
+	 * <p>Instead of rewriting the whole file on every modification, each added or removed element
+	 * is appended as a small record to a log file next to the main file.
+	 * Once the log grows past the compaction threshold, it's compacted into a fresh snapshot
+	 * of the main file in the background. The log is replayed when the file is loaded.</p>
+	 *
+	 * @param compactionThreshold The size in bytes the log may grow to before it's compacted
+	 * @return A copy of these options, with append-only log persistence enabled
+	 */
+	public FileOptions withAppendLog(long compactionThreshold) {
+		if (compactionThreshold <= 0) {
+			throw new IllegalArgumentException("The compaction threshold must be positive");
+		}
+		FileOptions copy = copy();
+		copy.logCompactionThreshold = compactionThreshold;
+		return copy;
+	}
+
+	public boolean isAppendLog() {
+		return logCompactionThreshold != -1;
+	}
+
+	/**
+	 * Gets the size in bytes the append-only log may grow to before it's compacted.
+	 *
+	 * @return The log compaction threshold, or {@code -1} if append-only logging is disabled
+	 * @see #withAppendLog(long)
+	 */
+	public long getLogCompactionThreshold() {
+		return logCompactionThreshold;
+	}
+
+	/**
+	 * Sets how durable writes to the file should be. {@link Durability#SYNC} by default.
+	 *
+	 * @param durability The durability of writes
+	 * @return A copy of these options, with the durability set
+	 * @see #withSyncInterval(Duration)
+	 */
+	public FileOptions withDurability(Durability durability) {
+		FileOptions copy = copy();
+		copy.durability = durability;
+		return copy;
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	/**
+	 * Sets how long written data may wait before it's forced to disk,
+	 * when using {@link Durability#PERIODIC}. 1 second by default.
+	 *
+	 * @param syncInterval The longest time written data may wait before it's forced to disk
+	 * @return A copy of these options, with the sync interval set
+	 */
+	public FileOptions withSyncInterval(Duration syncInterval) {
+		if (syncInterval.isNegative() || syncInterval.isZero()) {
+			throw new IllegalArgumentException("The sync interval must be positive");
+		}
+		FileOptions copy = copy();
+		copy.syncInterval = syncInterval;
+		return copy;
+	}
+
+	public Duration getSyncInterval() {
+		return syncInterval;
+	}
+
+	/**
+	 * Stores the loaded elements off-heap, in a direct buffer.
+	 * Only applies to collections backed by primitive sets,
+	 * such as {@link LongCollectionFileInterface}.
+	 *
+	 * @param offHeap If elements should be stored off-heap
+	 * @return A copy of these options, with off-heap storage set
+	 */
+	public FileOptions withOffHeap(boolean offHeap) {
+		FileOptions copy = copy();
+		copy.offHeap = offHeap;
+		return copy;
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * <p>Enables write-behind saving. Modifications then return without writing anything,
+	 * and the value is instead saved in the background once the window has passed.
+	 * Every modification made within the window is coalesced into that single save.</p>
+	 * <p>Modifications that aren't saved yet are lost if the bot crashes.
+	 * Use {@link FileInterface#flush()} to wait until they're written,
+	 * and close the file interface before exiting.
+	 * Modifications persisted through an {@link #withAppendLog(long) append-only log}
+	 * are appended right away, regardless of this option.</p>
+	 *
+	 * @param window How long to wait after a modification before saving
+	 * @return A copy of these options, with write-behind saving enabled
+	 */
+	public FileOptions withWriteBehind(Duration window) {
+		if (window.isNegative()) {
+			throw new IllegalArgumentException("The write-behind window can't be negative");
+		}
+		FileOptions copy = copy();
+		copy.writeBehindWindow = window;
+		return copy;
+	}
+
+	public boolean isWriteBehind() {
+		return writeBehindWindow != null;
+	}
+
+	/**
+	 * Gets how long to wait after a modification before saving, when write-behind is enabled.
+	 *
+	 * @return The write-behind window, or {@code null} if write-behind is disabled
+	 * @see #withWriteBehind(Duration)
+	 */
+	public Duration getWriteBehindWindow() {
+		return writeBehindWindow;
+	}
+
+	/**
+	 * <p>Sets how the serialized value is compressed before it's written.
+	 * {@link Compression#NONE} by default.</p>
+	 * <p>Compressed files are marked with a header, so a file can always be loaded,
+	 * regardless of the compression it was saved with.
+	 * Changing the compression of an existing file takes effect the next time it's saved.
+	 * Values that don't get any smaller by being compressed are saved uncompressed.
+	 * Doesn't apply to the append-only log of {@link CollectionFileInterface}s,
+	 * or to {@link MapFileInterface}s.</p>
+	 *
+	 * @param compression The compression to use
+	 * @return A copy of these options, with the compression set
+	 */
+	public FileOptions withCompression(Compression compression) {
+		FileOptions copy = copy();
+		copy.compression = compression;
+		return copy;
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Sets when the stored value is loaded from the file. {@link Loading#EAGER} by default.
+	 *
+	 * @param loading When to load the stored value
+	 * @return A copy of these options, with the loading set
+	 */
+	public FileOptions withLoading(Loading loading) {
+		FileOptions copy = copy();
+		copy.loading = loading;
+		return copy;
+	}
+
+	public Loading getLoading() {
+		return loading;
+	}
+
+	/**
+	 * <p>Keeps a Bloom filter over the elements of a collection,
+	 * so lookups of elements that aren't in it can usually be answered without looking at
+	 * the collection, or loading it. Only applies to {@link CollectionFileInterface}s.</p>
+	 * <p>The filter is persisted next to the main file when the file interface is closed,
+	 * and rebuilt when the collection is loaded if it's missing or out of date.
+	 * It's sized for twice the number of elements, and rebuilt once it fills up.
+	 * Removed elements aren't removed from the filter until it's rebuilt.</p>
+	 *
+	 * @param falsePositiveRate The desired rate of lookups of missing elements
+	 *                          that still have to look at the collection, between 0 & 1
+	 * @param maxBytes          The most memory the filter may use.
+	 *                          If this is too little for the desired rate,
+	 *                          the false positive rate will be higher
+	 * @return A copy of these options, with the Bloom filter enabled
+	 */
+	public FileOptions withBloomFilter(double falsePositiveRate, long maxBytes) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("The false positive rate must be between 0 & 1");
+		}
+		if (maxBytes < Long.BYTES) {
+			throw new IllegalArgumentException("The Bloom filter must be at least 8 bytes");
+		}
+		FileOptions copy = copy();
+		copy.bloomFalsePositiveRate = falsePositiveRate;
+		copy.bloomMaxBytes = maxBytes;
+		return copy;
+	}
+
+	public boolean isBloomFilter() {
+		return bloomFalsePositiveRate != 0;
+	}
+
+	/**
+	 * Gets the desired false positive rate of the Bloom filter.
+	 *
+	 * @return The false positive rate, or {@code 0} if the Bloom filter is disabled
+	 * @see #withBloomFilter(double, long)
+	 */
+	public double getBloomFalsePositiveRate() {
+		return bloomFalsePositiveRate;
+	}
+
+	/**
+	 * Gets the most memory the Bloom filter may use.
+	 *
+	 * @return The max size of the Bloom filter in bytes, or {@code 0} if it's disabled
+	 * @see #withBloomFilter(double, long)
+	 */
+	public long getBloomMaxBytes() {
+		return bloomMaxBytes;
+	}
+
+	/**
+	 * How durable writes to a file are, trading write latency against safety.
+	 * Regardless of durability, the whole file is always replaced atomically,
+	 * so a crash never leaves a partially written file behind.
+	 */
+	public enum Durability {
+		/**
+		 * Every write is forced to disk before it completes. Safest, but slowest.
+		 */
+		SYNC,
+		/**
+		 * Writes are forced to disk periodically, at most one
+		 * {@link FileOptions#withSyncInterval(Duration) sync interval} after they're made.
+		 * A crash may lose writes made within the last interval.
+		 */
+		PERIODIC,
+		/**
+		 * Writes are left to the OS to flush whenever it wants.
+		 * A crash of the machine may lose recent writes, but crashes of the bot itself will not.
+		 */
+		BUFFERED
+	}
+
+	/**
+	 * When the stored value of a file interface is loaded from its file.
+	 * Any access to the stored value before it's loaded waits for it to load.
+	 */
+	public enum Loading {
+		/**
+		 * The value is loaded when the file interface is created.
+		 */
+		EAGER,
+		/**
+		 * The value is loaded the first time it's accessed.
+		 * Useful for rarely used files, which then don't slow down startup.
+		 */
+		LAZY,
+		/**
+		 * The value is loaded in the background right after the file interface is created,
+		 * so it's usually loaded by the time it's first accessed
+		 * without slowing down startup.
+		 */
+		BACKGROUND
+	}
+
+	/**
+	 * How serialized values are compressed before they're written,
+	 * trading CPU time against the number of bytes written & read.
+	 */
+	public enum Compression {
+		/**
+		 * Values are written as is.
+		 */
+		NONE(Deflater.NO_COMPRESSION),
+		/**
+		 * Values are compressed with {@link Deflater}, favoring speed over compression ratio.
+		 */
+		DEFLATE_FAST(Deflater.BEST_SPEED),
+		/**
+		 * Values are compressed with {@link Deflater}, using its default balance
+		 * between speed & compression ratio.
+		 */
+		DEFLATE(Deflater.DEFAULT_COMPRESSION);
+
+		private final int level;
+
+		Compression(int level) {
+			this.level = level;
+		}
+
+		int getLevel() {
+			return level;
+		}
+	}
+}
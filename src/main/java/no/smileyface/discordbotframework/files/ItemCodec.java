@@ -0,0 +1,38 @@
+package no.smileyface.discordbotframework.files;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Serializes single items straight to & from a shared {@link ByteBuffer},
+ * without allocating an array per item.</p>
+ * <p>All reads & writes use absolute offsets,
+ * and must not change the buffer's position or limit.</p>
+ *
+ * @param <T> The item type
+ * @see CollectionFileInterface#getItemCodec()
+ */
+public interface ItemCodec<T> {
+	/**
+	 * Reads a single item from a buffer.
+	 *
+	 * @param buffer The buffer to read from
+	 * @param offset The offset in the buffer where the serialized item starts
+	 * @param length The length of the serialized item
+	 * @return The read item
+	 */
+	T read(ByteBuffer buffer, int offset, int length);
+
+	/**
+	 * Writes a single item into a buffer.
+	 * If the buffer doesn't have room for the item, this should throw an
+	 * {@link IndexOutOfBoundsException}, as the absolute put-methods of {@link ByteBuffer} do.
+	 * The write is then retried from the same offset with a larger buffer.
+	 *
+	 * @param item   The item to write
+	 * @param buffer The buffer to write to
+	 * @param offset The offset in the buffer to start writing the item at
+	 * @return The number of bytes written
+	 * @throws IndexOutOfBoundsException If the buffer doesn't have room for the item
+	 */
+	int write(T item, ByteBuffer buffer, int offset);
+}
@@ -2,15 +2,44 @@ package no.smileyface.discordbotframework.files;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import no.smileyface.discordbotframework.data.LongHashSet;
 
 /**
- * A generic implementation of {@link CollectionFileInterface} with {@code long}.
+ * <p>A generic implementation of {@link CollectionFileInterface} with {@code long}.</p>
+ * <p>Elements are stored unboxed in a {@link LongHashSet},
+ * off-heap if {@link FileOptions#withOffHeap(boolean)} is set.
+ * Use {@link #containsLong(long)}, {@link #addLong(long)} & {@link #removeLong(long)}
+ * to avoid boxing.</p>
+ * <p>In the compact format, elements are sorted and saved as varint-encoded deltas
+ * between each element and the previous one. Since snowflakes share their high bits,
+ * most deltas take far fewer than 8 bytes.</p>
  */
 public class LongCollectionFileInterface extends CollectionFileInterface<Long> {
+	private static final ItemCodec<Long> CODEC = new ItemCodec<>() {
+		@Override
+		public Long read(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public int write(Long item, ByteBuffer buffer, int offset) {
+			buffer.putLong(offset, item);
+			return Long.BYTES;
+		}
+	};
+
 	protected LongCollectionFileInterface(String path) throws IOException {
 		super(path, 8);
 	}
 
+	protected LongCollectionFileInterface(String path, FileOptions options) throws IOException {
+		super(path, 8, options);
+	}
+
 	@Override
 	protected final Long itemFromBytes(byte[] bytes) {
 		return ByteBuffer.wrap(bytes).getLong();
@@ -20,4 +49,96 @@ public class LongCollectionFileInterface extends CollectionFileInterface<Long> {
 	protected final byte[] itemToBytes(Long item) {
 		return ByteBuffer.allocate(8).putLong(item).array();
 	}
+
+	@Override
+	protected final ItemCodec<Long> getItemCodec() {
+		return CODEC;
+	}
+
+	@Override
+	protected final Collection<Long> createCollection(int expectedSize) {
+		return new LongHashSet(expectedSize, getOptions().isOffHeap());
+	}
+
+	@Override
+	final List<Long> snapshotOf(Collection<Long> items) {
+		// Kept unboxed, so the snapshot is as small as the set's own table
+		long[] values = ((LongHashSet) items).toLongArray();
+		return new AbstractList<>() {
+			@Override
+			public Long get(int index) {
+				return values[index];
+			}
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+		};
+	}
+
+	@Override
+	final void writeCompact(Collection<Long> items, ItemWriter writer) {
+		long[] values = ((LongHashSet) items).toLongArray();
+		Arrays.sort(values);
+		long previous = 0;
+		for (int i = 0; i < values.length; i++) {
+			// The first value is zigzag-encoded, so small negative values stay small too
+			writer.writeVarint(i == 0
+					? (values[i] << 1) ^ (values[i] >> 63)
+					: values[i] - previous
+			);
+			previous = values[i];
+		}
+	}
+
+	@Override
+	final void readCompact(ByteBuffer buffer, Collection<Long> items, int count) {
+		LongHashSet set = (LongHashSet) items;
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			long varint = readVarint(buffer);
+			previous = i == 0 ? (varint >>> 1) ^ -(varint & 1) : previous + varint;
+			set.add(previous);
+		}
+	}
+
+	/**
+	 * Same as {@link #contains(Object)}, but without boxing the element.
+	 *
+	 * @param l Element whose presence in this collection is to be tested
+	 * @return True if this collection contains the specified element
+	 */
+	public boolean containsLong(long l) {
+		return !isRuledOutByBloomFilter(l)
+				&& getBackingOptimistically(collection -> ((LongHashSet) collection).contains(l));
+	}
+
+	/**
+	 * Same as {@link #addChecked(Object)}, but without boxing the element.
+	 * If append-only logging or the Bloom filter is enabled, the element is still boxed.
+	 *
+	 * @param l Element whose presence in this collection is to be ensured
+	 * @return True if this collection changed as a result of the call
+	 * @throws IOException If saving the collection to a file threw one
+	 */
+	public boolean addLong(long l) throws IOException {
+		return isWrapped()
+				? addChecked(l)
+				: modifyAndGet(collection -> ((LongHashSet) collection).add(l));
+	}
+
+	/**
+	 * Same as {@link #removeChecked(Object)}, but without boxing the element.
+	 * If append-only logging or the Bloom filter is enabled, the element is still boxed.
+	 *
+	 * @param l Element to be removed from this collection, if present
+	 * @return True if an element was removed as a result of this call
+	 * @throws IOException If saving the collection to a file threw one
+	 */
+	public boolean removeLong(long l) throws IOException {
+		return isWrapped()
+				? removeChecked(l)
+				: modifyAndGet(collection -> ((LongHashSet) collection).remove(l));
+	}
 }
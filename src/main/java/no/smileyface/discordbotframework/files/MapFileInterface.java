@@ -0,0 +1,854 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>An interface for persistent storage of key-value pairs,
+ * kept on disk instead of being loaded into memory as a whole.</p>
+ * <p>Every put or removal is appended as a record to the data file,
+ * and records are located through a page-based hash index stored next to it.
+ * Getting or putting an entry only reads & writes the pages of a single bucket
+ * and the record itself, so maps larger than the heap are supported.
+ * The index grows one bucket at a time (linear hashing),
+ * so no single put ever has to rebuild the whole index.</p>
+ * <p>Entries that are used often are kept in a bounded {@link SegmentedLruCache},
+ * which misses are read through to the files from.
+ * The cache's capacity is either a number of entries, or a number of bytes,
+ * so memory use stays fixed however large the map grows.</p>
+ * <p>Overwritten & removed entries leave dead records behind in the data file,
+ * which can be reclaimed with {@link #compact()}.
+ * If the map isn't closed properly, the index is rebuilt from the data file
+ * the next time it's opened.</p>
+ * <p>Of the {@link FileOptions}, only the {@link FileOptions.Durability durability} applies.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public abstract class MapFileInterface<K, V> implements Closeable {
+	private static final Logger LOGGER = Logger.getLogger(MapFileInterface.class.getName());
+
+	private static final int PAGE_SIZE = 4096;
+	private static final int PAGE_HEADER = 2 * Integer.BYTES;
+	private static final int SLOT_SIZE = Integer.BYTES + Long.BYTES;
+	private static final int SLOTS_PER_PAGE = (PAGE_SIZE - PAGE_HEADER) / SLOT_SIZE;
+	private static final float LOAD_FACTOR = 0.75f;
+	private static final int RECORD_HEADER = 2 * Integer.BYTES;
+	private static final int TOMBSTONE = -1;
+
+	private static final int MAGIC = 0x4D464931;
+	private static final int HEADER_LENGTH = 5 * Integer.BYTES + 1;
+	private static final int HEADER_CLEAN = HEADER_LENGTH - 1;
+
+	private final Path path;
+	private final FileOptions options;
+	private final SegmentedLruCache<K, V> cache;
+	private final ReentrantReadWriteLock lock;
+	private final AtomicBoolean syncScheduled;
+	private final FileChannel index;
+	private final FileChannel overflow;
+	private FileChannel data;
+	private long dataSize;
+	private int bucketCount;
+	private int size;
+	private int overflowPages;
+	private int freeOverflowPage;
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path      The path to the data file this interface is for
+	 * @param cacheSize The max number of entries to keep cached in memory
+	 * @throws IOException If the files at the provided path cannot be read
+	 */
+	protected MapFileInterface(String path, int cacheSize) throws IOException {
+		this(path, cacheSize, FileOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path      The path to the data file this interface is for
+	 * @param cacheSize The max number of entries to keep cached in memory
+	 * @param options   The {@link FileOptions} for how the map is persisted
+	 * @throws IOException If the files at the provided path cannot be read
+	 */
+	protected MapFileInterface(
+			String path,
+			int cacheSize,
+			FileOptions options
+	) throws IOException {
+		this(path, SegmentedLruCache.ofEntries(cacheSize), options);
+	}
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path    The path to the data file this interface is for
+	 * @param cache   The cache to keep entries that are used often in,
+	 *                created by {@link SegmentedLruCache#ofEntries(long)}
+	 *                or {@link SegmentedLruCache#ofBytes(long)}.
+	 *                It must not be used by any other map
+	 * @param options The {@link FileOptions} for how the map is persisted
+	 * @throws IOException If the files at the provided path cannot be read
+	 */
+	protected MapFileInterface(
+			String path,
+			SegmentedLruCache<K, V> cache,
+			FileOptions options
+	) throws IOException {
+		long start = System.nanoTime();
+		this.path = FileInterface.BASE_PATH.resolve(path);
+		this.options = options;
+		this.cache = cache;
+		this.lock = new ReentrantReadWriteLock();
+		this.syncScheduled = new AtomicBoolean(false);
+		String fileName = this.path.getFileName().toString();
+		this.data = open(this.path);
+		this.index = open(this.path.resolveSibling(fileName + ".index"));
+		this.overflow = open(this.path.resolveSibling(fileName + ".overflow"));
+		try {
+			this.dataSize = data.size();
+			if (isIndexClean()) {
+				readHeader();
+			} else {
+				rebuildIndex();
+			}
+			// Marks the index as unclean until closed, so it's rebuilt after a crash
+			writeHeader(false);
+			index.force(false);
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			index.close();
+			overflow.close();
+			throw e;
+		}
+		FileInterface.notifyLoaded(this.path, dataSize, start);
+	}
+
+	private static FileChannel open(Path path) throws IOException {
+		return FileChannel.open(
+				path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE
+		);
+	}
+
+	/**
+	 * Gets the codec used to read & write keys.
+	 *
+	 * @return The key codec for this map
+	 */
+	protected abstract ItemCodec<K> getKeyCodec();
+
+	/**
+	 * Gets the codec used to read & write values.
+	 *
+	 * @return The value codec for this map
+	 */
+	protected abstract ItemCodec<V> getValueCodec();
+
+	/**
+	 * Gets the value of a key, from the cache if possible.
+	 *
+	 * @param key The key to get the value of
+	 * @return The value of the key, or {@code null} if the map doesn't contain the key
+	 * @throws IOException If the value couldn't be read from the data file
+	 */
+	public V get(K key) throws IOException {
+		Objects.requireNonNull(key);
+		lock.readLock().lock();
+		try {
+			V cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+			ByteBuffer encodedKey = encode(getKeyCodec(), key);
+			Slot slot = find(encodedKey, hash(encodedKey));
+			if (slot == null) {
+				return null;
+			}
+			V value = readValue(slot.getOffset());
+			// Cached while holding the read lock, so a concurrent put can't be overwritten
+			cache.put(key, value, cache.isWeighed()
+					? (long) encodedKey.limit() + valueLength(slot.getOffset())
+					: 1
+			);
+			return value;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks if the map contains a key.
+	 *
+	 * @param key The key to check for
+	 * @return If the map contains the key
+	 * @throws IOException If the index couldn't be read
+	 */
+	public boolean containsKey(K key) throws IOException {
+		Objects.requireNonNull(key);
+		lock.readLock().lock();
+		try {
+			if (cache.contains(key)) {
+				return true;
+			}
+			ByteBuffer encodedKey = encode(getKeyCodec(), key);
+			return find(encodedKey, hash(encodedKey)) != null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the value of a key, replacing any previous value.
+	 *
+	 * @param key   The key to set the value of
+	 * @param value The value to set
+	 * @throws IOException If the entry couldn't be written
+	 */
+	public void put(K key, V value) throws IOException {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		ByteBuffer encodedKey = encode(getKeyCodec(), key);
+		ByteBuffer encodedValue = encode(getValueCodec(), value);
+		int hash = hash(encodedKey);
+		lock.writeLock().lock();
+		try {
+			long offset = appendRecord(encodedKey, encodedValue);
+			applyDurability();
+			Slot slot = find(encodedKey, hash);
+			if (slot != null) {
+				slot.setOffset(offset);
+			} else {
+				insert(hash, offset);
+			}
+			cache.put(key, value, (long) encodedKey.limit() + encodedValue.limit());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a key & its value from the map.
+	 *
+	 * @param key The key to remove
+	 * @return If the map contained the key
+	 * @throws IOException If the removal couldn't be written
+	 */
+	public boolean remove(K key) throws IOException {
+		Objects.requireNonNull(key);
+		ByteBuffer encodedKey = encode(getKeyCodec(), key);
+		lock.writeLock().lock();
+		try {
+			Slot slot = find(encodedKey, hash(encodedKey));
+			if (slot == null) {
+				return false;
+			}
+			appendRecord(encodedKey, null);
+			applyDurability();
+			removeSlot(slot);
+			cache.remove(key);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Reads every entry in the map from disk, in no particular order.
+	 * The action must not modify this map.
+	 *
+	 * @param action The action to perform for each entry
+	 * @throws IOException If the entries couldn't be read
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) throws IOException {
+		ItemCodec<K> keyCodec = getKeyCodec();
+		ItemCodec<V> valueCodec = getValueCodec();
+		lock.readLock().lock();
+		try {
+			for (int bucket = 0; bucket < bucketCount; bucket++) {
+				for (Page page = bucketPage(bucket); page != null; page = nextPage(page)) {
+					for (int slot = 0; slot < page.getCount(); slot++) {
+						ByteBuffer record = readRecord(page.getOffset(slot));
+						int keyLength = record.getInt(0);
+						action.accept(
+								keyCodec.read(record, RECORD_HEADER, keyLength),
+								valueCodec.read(
+										record,
+										RECORD_HEADER + keyLength,
+										record.getInt(Integer.BYTES)
+								)
+						);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites the data file with only the live records,
+	 * reclaiming the space taken by overwritten & removed entries.
+	 * The index isn't touched until the rewritten data file has replaced the old one.
+	 *
+	 * @throws IOException If the data file couldn't be rewritten
+	 */
+	public void compact() throws IOException {
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		lock.writeLock().lock();
+		try {
+			try (FileChannel compacted = FileChannel.open(
+					tempPath,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING
+			)) {
+				long position = 0;
+				for (int bucket = 0; bucket < bucketCount; bucket++) {
+					for (Page page = bucketPage(bucket); page != null; page = nextPage(page)) {
+						for (int slot = 0; slot < page.getCount(); slot++) {
+							ByteBuffer record = readRecord(page.getOffset(slot));
+							write(compacted, position, record);
+							position += record.limit();
+						}
+					}
+				}
+				compacted.force(true);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(tempPath);
+				throw e;
+			}
+			// If this crashes before the index is updated, the index is rebuilt on the next open
+			data.close();
+			try {
+				Files.move(
+						tempPath,
+						path,
+						StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING
+				);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(tempPath);
+				data = open(path);
+				throw e;
+			}
+			data = open(path);
+			dataSize = data.size();
+			try {
+				repointIndex();
+			} catch (IOException | RuntimeException e) {
+				// Parts of the index may still point into the old data file
+				try {
+					rebuildIndex();
+				} catch (IOException rebuildException) {
+					e.addSuppressed(rebuildException);
+				}
+				throw e;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Points every slot of the index at its record in a compacted data file,
+	 * where the records are laid out in the same order as the slots.
+	 */
+	private void repointIndex() throws IOException {
+		long position = 0;
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			for (Page page = bucketPage(bucket); page != null; page = nextPage(page)) {
+				for (int slot = 0; slot < page.getCount(); slot++) {
+					page.setSlot(slot, page.getHash(slot), position);
+					ByteBuffer header = read(data, position, RECORD_HEADER);
+					position += RECORD_HEADER + header.getInt(0) + header.getInt(Integer.BYTES);
+				}
+				page.write();
+			}
+		}
+	}
+
+	/**
+	 * Forces all data to disk, marks the index as clean, and closes the underlying files.
+	 *
+	 * @throws IOException If an I/O exception occurred while closing the files
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (!data.isOpen()) {
+				return;
+			}
+			data.force(true);
+			writeHeader(true);
+			index.force(true);
+			overflow.force(true);
+			data.close();
+			index.close();
+			overflow.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the cache of entries that are used often,
+	 * with counters for its hits, misses & evictions.
+	 *
+	 * @return The cache of this map
+	 */
+	public SegmentedLruCache<K, V> getCache() {
+		return cache;
+	}
+
+	private void applyDurability() throws IOException {
+		switch (options.getDurability()) {
+			case SYNC -> data.force(false);
+			case PERIODIC -> scheduleSync();
+			case BUFFERED -> {
+				// Leave flushing to the OS
+			}
+		}
+	}
+
+	private void scheduleSync() {
+		if (syncScheduled.compareAndSet(false, true)) {
+			FileInterface.SYNCER.schedule(() -> {
+				syncScheduled.set(false);
+				lock.readLock().lock();
+				try {
+					if (data.isOpen()) {
+						data.force(false);
+					}
+				} catch (IOException ioe) {
+					LOGGER.log(Level.WARNING, "Could not force " + path + " to disk", ioe);
+				} finally {
+					lock.readLock().unlock();
+				}
+			}, options.getSyncInterval().toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private boolean isIndexClean() throws IOException {
+		if (index.size() < PAGE_SIZE) {
+			return false;
+		}
+		ByteBuffer header = read(index, 0, HEADER_LENGTH);
+		return header.getInt(0) == MAGIC && header.get(HEADER_CLEAN) == 1;
+	}
+
+	private void readHeader() throws IOException {
+		ByteBuffer header = read(index, 0, HEADER_LENGTH);
+		header.getInt();
+		this.bucketCount = header.getInt();
+		this.size = header.getInt();
+		this.overflowPages = header.getInt();
+		this.freeOverflowPage = header.getInt();
+	}
+
+	private void writeHeader(boolean clean) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+				.putInt(MAGIC)
+				.putInt(bucketCount)
+				.putInt(size)
+				.putInt(overflowPages)
+				.putInt(freeOverflowPage)
+				.put((byte) (clean ? 1 : 0))
+				.flip();
+		write(index, 0, header);
+	}
+
+	/**
+	 * Rebuilds the index from scratch, by replaying every record in the data file.
+	 * If the data file ends with a partially written record, the partial record is discarded.
+	 */
+	private void rebuildIndex() throws IOException {
+		LOGGER.log(Level.INFO, "Rebuilding the index of {0}", path);
+		index.truncate(0);
+		overflow.truncate(0);
+		this.bucketCount = 1;
+		this.size = 0;
+		this.overflowPages = 0;
+		this.freeOverflowPage = 0;
+		writeChain(0, List.of());
+		long position = 0;
+		while (dataSize - position >= RECORD_HEADER) {
+			ByteBuffer header = read(data, position, RECORD_HEADER);
+			int keyLength = header.getInt(0);
+			int valueLength = header.getInt(Integer.BYTES);
+			long end = position + RECORD_HEADER + keyLength + Math.max(valueLength, 0);
+			if (keyLength < 0 || valueLength < TOMBSTONE || end > dataSize) {
+				break;
+			}
+			ByteBuffer key = read(data, position + RECORD_HEADER, keyLength);
+			int hash = hash(key);
+			Slot slot = find(key, hash);
+			if (valueLength == TOMBSTONE) {
+				if (slot != null) {
+					removeSlot(slot);
+				}
+			} else if (slot != null) {
+				slot.setOffset(position);
+			} else {
+				insert(hash, position);
+			}
+			position = end;
+		}
+		if (position < dataSize) {
+			LOGGER.log(
+					Level.WARNING,
+					"Discarding partially written record at the end of {0}",
+					path
+			);
+			data.truncate(position);
+			dataSize = position;
+		}
+	}
+
+	/**
+	 * Serializes an item into a buffer just large enough for it,
+	 * growing the buffer for as long as the codec needs more room.
+	 */
+	private static <X> ByteBuffer encode(ItemCodec<X> codec, X item) {
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		while (true) {
+			try {
+				return buffer.limit(codec.write(item, buffer, 0));
+			} catch (IndexOutOfBoundsException ioobe) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	/**
+	 * Hashes the serialized key, which is stable between runs unlike {@link Object#hashCode()}.
+	 */
+	private static int hash(ByteBuffer key) {
+		int hash = 1;
+		for (int i = 0; i < key.limit(); i++) {
+			hash = 31 * hash + key.get(i);
+		}
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Finds the bucket of a hash. Buckets that haven't been split yet this round
+	 * use one bit less of the hash than those that have.
+	 */
+	private int bucketOf(int hash) {
+		int highestBit = Integer.highestOneBit(bucketCount);
+		int bucket = hash & ((highestBit << 1) - 1);
+		return bucket < bucketCount ? bucket : hash & (highestBit - 1);
+	}
+
+	private long appendRecord(ByteBuffer key, ByteBuffer value) throws IOException {
+		int valueLength = value == null ? TOMBSTONE : value.limit();
+		ByteBuffer record = ByteBuffer.allocate(
+				RECORD_HEADER + key.limit() + Math.max(valueLength, 0)
+		);
+		record.putInt(key.limit()).putInt(valueLength).put(key.duplicate());
+		if (value != null) {
+			record.put(value.duplicate());
+		}
+		long offset = dataSize;
+		write(data, offset, record.flip());
+		dataSize += record.limit();
+		return offset;
+	}
+
+	private ByteBuffer readRecord(long offset) throws IOException {
+		ByteBuffer header = read(data, offset, RECORD_HEADER);
+		return read(data, offset, RECORD_HEADER + header.getInt(0) + header.getInt(Integer.BYTES));
+	}
+
+	private V readValue(long offset) throws IOException {
+		ByteBuffer header = read(data, offset, RECORD_HEADER);
+		int keyLength = header.getInt(0);
+		int valueLength = header.getInt(Integer.BYTES);
+		ByteBuffer value = read(data, offset + RECORD_HEADER + keyLength, valueLength);
+		return getValueCodec().read(value, 0, valueLength);
+	}
+
+	private int valueLength(long offset) throws IOException {
+		return read(data, offset + Integer.BYTES, Integer.BYTES).getInt(0);
+	}
+
+	private boolean keyEquals(long offset, ByteBuffer key) throws IOException {
+		int length = (int) Math.min(RECORD_HEADER + key.limit(), dataSize - offset);
+		ByteBuffer record = read(data, offset, length);
+		return length == RECORD_HEADER + key.limit()
+				&& record.getInt(0) == key.limit()
+				&& record.position(RECORD_HEADER).equals(key);
+	}
+
+	private Slot find(ByteBuffer key, int hash) throws IOException {
+		for (Page page = bucketPage(bucketOf(hash)); page != null; page = nextPage(page)) {
+			for (int slot = 0; slot < page.getCount(); slot++) {
+				if (page.getHash(slot) == hash && keyEquals(page.getOffset(slot), key)) {
+					return new Slot(page, slot);
+				}
+			}
+		}
+		return null;
+	}
+
+	private void insert(int hash, long offset) throws IOException {
+		Page page = bucketPage(bucketOf(hash));
+		while (page.getCount() == SLOTS_PER_PAGE) {
+			Page next = nextPage(page);
+			if (next == null) {
+				next = allocateOverflowPage();
+				page.setNext(next.number);
+				page.write();
+			}
+			page = next;
+		}
+		page.setSlot(page.getCount(), hash, offset);
+		page.setCount(page.getCount() + 1);
+		page.write();
+		size++;
+		if (size > (long) bucketCount * SLOTS_PER_PAGE * LOAD_FACTOR) {
+			split();
+		}
+	}
+
+	/**
+	 * Removes a slot by moving the last slot of its page into it.
+	 * Pages emptied this way stay in the chain until the bucket is split.
+	 */
+	private void removeSlot(Slot slot) throws IOException {
+		Page page = slot.page;
+		int last = page.getCount() - 1;
+		page.setSlot(slot.slot, page.getHash(last), page.getOffset(last));
+		page.setCount(last);
+		page.write();
+		size--;
+	}
+
+	/**
+	 * Adds a new bucket to the index, moving over the entries that belong to it
+	 * from the bucket it's split from.
+	 */
+	private void split() throws IOException {
+		int newBucket = bucketCount;
+		int splitBucket = newBucket - Integer.highestOneBit(newBucket);
+		List<Entry> entries = new ArrayList<>();
+		Page page = bucketPage(splitBucket);
+		while (page != null) {
+			for (int slot = 0; slot < page.getCount(); slot++) {
+				entries.add(new Entry(page.getHash(slot), page.getOffset(slot)));
+			}
+			Page next = nextPage(page);
+			if (page.number != 0) {
+				freeOverflowPage(page);
+			}
+			page = next;
+		}
+		bucketCount++;
+		List<Entry> staying = new ArrayList<>();
+		List<Entry> moving = new ArrayList<>();
+		for (Entry entry : entries) {
+			(bucketOf(entry.hash) == newBucket ? moving : staying).add(entry);
+		}
+		writeChain(splitBucket, staying);
+		writeChain(newBucket, moving);
+	}
+
+	private void writeChain(int bucket, List<Entry> entries) throws IOException {
+		Page page = new Page(
+				index,
+				0,
+				(1L + bucket) * PAGE_SIZE,
+				ByteBuffer.allocate(PAGE_SIZE)
+		);
+		for (Entry entry : entries) {
+			if (page.getCount() == SLOTS_PER_PAGE) {
+				Page next = allocateOverflowPage();
+				page.setNext(next.number);
+				page.write();
+				page = next;
+			}
+			page.setSlot(page.getCount(), entry.hash, entry.offset);
+			page.setCount(page.getCount() + 1);
+		}
+		page.write();
+	}
+
+	private Page bucketPage(int bucket) throws IOException {
+		long position = (1L + bucket) * PAGE_SIZE;
+		return new Page(index, 0, position, read(index, position, PAGE_SIZE));
+	}
+
+	private Page nextPage(Page page) throws IOException {
+		int next = page.getNext();
+		if (next == 0) {
+			return null;
+		}
+		long position = (next - 1L) * PAGE_SIZE;
+		return new Page(overflow, next, position, read(overflow, position, PAGE_SIZE));
+	}
+
+	private Page allocateOverflowPage() throws IOException {
+		int number;
+		if (freeOverflowPage != 0) {
+			number = freeOverflowPage;
+			freeOverflowPage = read(overflow, (number - 1L) * PAGE_SIZE, PAGE_SIZE)
+					.getInt(Integer.BYTES);
+		} else {
+			number = ++overflowPages;
+		}
+		long position = (number - 1L) * PAGE_SIZE;
+		return new Page(overflow, number, position, ByteBuffer.allocate(PAGE_SIZE));
+	}
+
+	private void freeOverflowPage(Page page) throws IOException {
+		ByteBuffer freed = ByteBuffer.allocate(PAGE_SIZE).putInt(Integer.BYTES, freeOverflowPage);
+		write(overflow, page.position, freed);
+		freeOverflowPage = page.number;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new EOFException(String.format(
+						"Unexpected end of file at position %s",
+						position + buffer.position()
+				));
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static void write(FileChannel channel, long position, ByteBuffer buffer)
+			throws IOException {
+		ByteBuffer remaining = buffer.duplicate();
+		while (remaining.hasRemaining()) {
+			channel.write(remaining, position + remaining.position() - buffer.position());
+		}
+	}
+
+	/**
+	 * A page of the index, holding a number of slots pointing to records in the data file.
+	 * Starts with the number of used slots, and the number of the next overflow page in its chain.
+	 */
+	private static final class Page {
+		private final FileChannel channel;
+		private final int number;
+		private final long position;
+		private final ByteBuffer buffer;
+
+		/**
+		 * Creates a page.
+		 *
+		 * @param channel  The channel the page is stored in
+		 * @param number   The number of the page if it's an overflow page, or 0 if it's not
+		 * @param position The position of the page in its channel
+		 * @param buffer   The contents of the page
+		 */
+		private Page(FileChannel channel, int number, long position, ByteBuffer buffer) {
+			this.channel = channel;
+			this.number = number;
+			this.position = position;
+			this.buffer = buffer;
+		}
+
+		private int getCount() {
+			return buffer.getInt(0);
+		}
+
+		private void setCount(int count) {
+			buffer.putInt(0, count);
+		}
+
+		private int getNext() {
+			return buffer.getInt(Integer.BYTES);
+		}
+
+		private void setNext(int next) {
+			buffer.putInt(Integer.BYTES, next);
+		}
+
+		private int getHash(int slot) {
+			return buffer.getInt(PAGE_HEADER + slot * SLOT_SIZE);
+		}
+
+		private long getOffset(int slot) {
+			return buffer.getLong(PAGE_HEADER + slot * SLOT_SIZE + Integer.BYTES);
+		}
+
+		private void setSlot(int slot, int hash, long offset) {
+			buffer.putInt(PAGE_HEADER + slot * SLOT_SIZE, hash);
+			buffer.putLong(PAGE_HEADER + slot * SLOT_SIZE + Integer.BYTES, offset);
+		}
+
+		private void write() throws IOException {
+			MapFileInterface.write(channel, position, buffer.duplicate().clear());
+		}
+	}
+
+	private static final class Slot {
+		private final Page page;
+		private final int slot;
+
+		private Slot(Page page, int slot) {
+			this.page = page;
+			this.slot = slot;
+		}
+
+		private long getOffset() {
+			return page.getOffset(slot);
+		}
+
+		private void setOffset(long offset) throws IOException {
+			page.setSlot(slot, page.getHash(slot), offset);
+			page.write();
+		}
+	}
+
+	private static final class Entry {
+		private final int hash;
+		private final long offset;
+
+		private Entry(int hash, long offset) {
+			this.hash = hash;
+			this.offset = offset;
+		}
+	}
+}
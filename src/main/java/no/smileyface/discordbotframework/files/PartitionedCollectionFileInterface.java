@@ -0,0 +1,580 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import net.dv8tion.jda.api.utils.IOFunction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>An interface for persistent storage of large collections,
+ * split into a fixed number of partitions that are each stored in their own file.</p>
+ * <p>Elements are assigned to partitions by their hash.
+ * Every partition is a separate {@link CollectionFileInterface},
+ * so a modification only rewrites the file of the partition(s) it touches,
+ * and the partitions are loaded in parallel when the collection is created.</p>
+ * <p>The partition files are stored in a directory at the provided path.
+ * The number of partitions can't be changed once the files are written.</p>
+ * <p><b>Note: Elements in this collection should <i>not</i> be modified after being added,
+ * as this will not save the updated element</b></p>
+ *
+ * @param <T> The collection type
+ * @see CollectionFileInterface
+ */
+public abstract class PartitionedCollectionFileInterface<T>
+		extends AbstractCollection<T>
+		implements Closeable {
+	private static final Logger LOGGER =
+			Logger.getLogger(PartitionedCollectionFileInterface.class.getName());
+	private static final String PARTITION_PREFIX = "partition-";
+
+	private final int fixedLength;
+	private final FileOptions options;
+	private final List<Partition> partitions;
+
+	/**
+	 * Creates the file interface, with dynamic length for each serialized element.
+	 *
+	 * @param path           The path to the directory the partition files are stored in
+	 * @param partitionCount The number of partitions to split the collection into
+	 * @throws IOException If the partition files cannot be read
+	 */
+	protected PartitionedCollectionFileInterface(
+			String path,
+			int partitionCount
+	) throws IOException {
+		this(path, partitionCount, FileOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates the file interface, with dynamic length for each serialized element.
+	 *
+	 * @param path           The path to the directory the partition files are stored in
+	 * @param partitionCount The number of partitions to split the collection into
+	 * @param options        The {@link FileOptions} for how each partition is persisted
+	 * @throws IOException If the partition files cannot be read
+	 */
+	protected PartitionedCollectionFileInterface(
+			String path,
+			int partitionCount,
+			FileOptions options
+	) throws IOException {
+		this(path, partitionCount, -1, options);
+	}
+
+	/**
+	 * Creates the file interface, with a fixed length for each serialized element.
+	 *
+	 * @param path           The path to the directory the partition files are stored in
+	 * @param partitionCount The number of partitions to split the collection into
+	 * @param fixedLength    The fixed length of each serialized element
+	 * @param options        The {@link FileOptions} for how each partition is persisted
+	 * @throws IOException If the partition files cannot be read,
+	 *                     or were written with a different number of partitions
+	 * @see CollectionFileInterface#CollectionFileInterface(String, int)
+	 */
+	protected PartitionedCollectionFileInterface(
+			String path,
+			int partitionCount,
+			int fixedLength,
+			FileOptions options
+	) throws IOException {
+		if (partitionCount <= 0) {
+			throw new IllegalArgumentException("The partition count must be positive");
+		}
+		this.fixedLength = fixedLength;
+		this.options = options;
+		Path directory = Files.createDirectories(FileInterface.BASE_PATH.resolve(path));
+		long existingPartitions;
+		try (Stream<Path> files = Files.list(directory)) {
+			existingPartitions = files
+					.map(file -> file.getFileName().toString())
+					.filter(name -> name.matches(PARTITION_PREFIX + "\\d+"))
+					.count();
+		}
+		if (existingPartitions != 0 && existingPartitions != partitionCount) {
+			throw new IOException(String.format(
+					"\"%s\" has %s partitions, but %s were requested",
+					directory,
+					existingPartitions,
+					partitionCount
+			));
+		}
+		this.partitions = loadPartitions(path, partitionCount);
+	}
+
+	/**
+	 * Loads every partition in parallel, using up to one thread per available processor.
+	 */
+	private List<Partition> loadPartitions(String path, int partitionCount) throws IOException {
+		int threads = Math.min(partitionCount, Runtime.getRuntime().availableProcessors());
+		ExecutorService loader = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "partition-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<Partition>> loading = new ArrayList<>(partitionCount);
+			for (int i = 0; i < partitionCount; i++) {
+				String partitionPath = Path.of(path, PARTITION_PREFIX + i).toString();
+				loading.add(loader.submit(() -> new Partition(partitionPath)));
+			}
+			List<Partition> loaded = new ArrayList<>(partitionCount);
+			for (Future<Partition> partition : loading) {
+				loaded.add(partition.get());
+			}
+			return List.copyOf(loaded);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException ioe) {
+				throw ioe;
+			}
+			throw new IOException("Could not load partitions of \"" + path + "\"", ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading partitions of \"" + path + "\"", ie);
+		} finally {
+			loader.shutdown();
+		}
+	}
+
+	/**
+	 * Finds the partition an element belongs to.
+	 * Uses the element's {@link Object#hashCode()} by default.
+	 * <p><b>NB: This must always return the same partition for the same element,
+	 * also between restarts, or elements won't be found after the collection is reloaded.</b></p>
+	 *
+	 * @param element The element to find the partition of
+	 * @param partitionCount The total number of partitions
+	 * @return The index of the partition the element belongs to,
+	 *         between {@code 0} (inclusive) and the partition count (exclusive)
+	 */
+	protected int partitionOf(Object element, int partitionCount) {
+		int hash = element.hashCode() * 0x9E3779B9;
+		return Math.floorMod(hash ^ (hash >>> 16), partitionCount);
+	}
+
+	private Partition partition(Object element) {
+		return partitions.get(partitionOf(element, partitions.size()));
+	}
+
+	private <U> boolean ioSuccessOrLog(IOFunction<U, Boolean> ioFunction, U item) {
+		boolean returnValue;
+		try {
+			returnValue = ioFunction.apply(item);
+		} catch (IOException ioe) {
+			returnValue = false;
+			LOGGER.log(Level.WARNING, ioe.getMessage(), ioe);
+		}
+		return returnValue;
+	}
+
+	@Override
+	public int size() {
+		return partitions.stream().mapToInt(Collection::size).sum();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return partitions.stream().allMatch(Collection::isEmpty);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return partition(o).contains(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Iterates one partition at a time, over a snapshot of each partition.</p>
+	 */
+	@NotNull
+	@Override
+	public Iterator<T> iterator() {
+		return new PartitionIterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #addChecked(Object)} is preferred over this.</p>
+	 *
+	 * @see #addChecked(Object)
+	 */
+	@Override
+	public boolean add(T t) {
+		return ioSuccessOrLog(this::addChecked, t);
+	}
+
+	/**
+	 * Same as {@link #add(Object)}, but throws an {@link IOException}
+	 * if saving the partition happens to throw one.
+	 * A call to this is preferred over {@link #add(Object)}.
+	 *
+	 * @param t Element whose presence in this collection is to be ensured
+	 * @return True if this collection changed as a result of the call
+	 * @throws IOException If saving the partition to a file threw one
+	 */
+	public boolean addChecked(T t) throws IOException {
+		return partition(t).addChecked(t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #removeChecked(Object)} is preferred over this.</p>
+	 *
+	 * @see #removeChecked(Object)
+	 */
+	@Override
+	public boolean remove(Object o) {
+		return ioSuccessOrLog(this::removeChecked, o);
+	}
+
+	/**
+	 * Same as {@link #remove(Object)}, but throws an {@link IOException}
+	 * if saving the partition happens to throw one.
+	 * A call to this is preferred over {@link #remove(Object)}.
+	 *
+	 * @param o Element to be removed from this collection, if present
+	 * @return True if an element was removed as a result of this call
+	 * @throws IOException If saving the partition to a file threw one
+	 */
+	public boolean removeChecked(Object o) throws IOException {
+		return partition(o).removeChecked(o);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #addAllChecked(Collection)} is preferred over this.</p>
+	 *
+	 * @see #addAllChecked(Collection)
+	 */
+	@Override
+	public boolean addAll(@NotNull Collection<? extends T> c) {
+		return ioSuccessOrLog(this::addAllChecked, c);
+	}
+
+	/**
+	 * Same as {@link #addAll(Collection)}, but throws an {@link IOException}
+	 * if saving the partitions happens to throw one.
+	 * Each partition with added elements is only saved once.
+	 * A call to this is preferred over {@link #addAll(Collection)}.
+	 *
+	 * @param c Collection containing elements to be added to this collection
+	 * @return True if this collection changed as a result of the call
+	 * @throws IOException If saving a partition to a file threw one
+	 */
+	public boolean addAllChecked(@NotNull Collection<? extends T> c) throws IOException {
+		List<? extends List<? extends T>> grouped = group(c);
+		boolean changed = false;
+		for (int i = 0; i < partitions.size(); i++) {
+			if (!grouped.get(i).isEmpty()) {
+				changed |= partitions.get(i).addAllChecked(grouped.get(i));
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #removeAllChecked(Collection)} is preferred over this.</p>
+	 *
+	 * @see #removeAllChecked(Collection)
+	 */
+	@Override
+	public boolean removeAll(@NotNull Collection<?> c) {
+		return ioSuccessOrLog(this::removeAllChecked, c);
+	}
+
+	/**
+	 * Same as {@link #removeAll(Collection)}, but throws an {@link IOException}
+	 * if saving the partitions happens to throw one.
+	 * Each partition with removed elements is only saved once.
+	 * A call to this is preferred over {@link #removeAll(Collection)}.
+	 *
+	 * @param c Collection containing elements to be removed from this collection
+	 * @return True if an element was removed as a result of this call
+	 * @throws IOException If saving a partition to a file threw one
+	 */
+	public boolean removeAllChecked(@NotNull Collection<?> c) throws IOException {
+		List<? extends List<?>> grouped = group(c);
+		boolean changed = false;
+		for (int i = 0; i < partitions.size(); i++) {
+			if (!grouped.get(i).isEmpty()) {
+				changed |= partitions.get(i).removeAllChecked(grouped.get(i));
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #retainAllChecked(Collection)} is preferred over this.</p>
+	 *
+	 * @see #retainAllChecked(Collection)
+	 */
+	@Override
+	public boolean retainAll(@NotNull Collection<?> c) {
+		return ioSuccessOrLog(this::retainAllChecked, c);
+	}
+
+	/**
+	 * Same as {@link #retainAll(Collection)}, but throws an {@link IOException}
+	 * if saving the partitions happens to throw one.
+	 * Only partitions with elements that aren't retained are saved.
+	 * A call to this is preferred over {@link #retainAll(Collection)}.
+	 *
+	 * @param c Collection containing elements to be retained in this collection
+	 * @return True if this collection changed as a result of the call
+	 * @throws IOException If saving a partition to a file threw one
+	 */
+	public boolean retainAllChecked(@NotNull Collection<?> c) throws IOException {
+		Collection<?> retained = c instanceof HashSet<?> ? c : new HashSet<>(c);
+		boolean changed = false;
+		for (Partition partition : partitions) {
+			if (!retained.containsAll(partition)) {
+				changed |= partition.retainAllChecked(retained);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #clearChecked()} is preferred over this.</p>
+	 *
+	 * @see #clearChecked()
+	 */
+	@Override
+	public void clear() {
+		try {
+			this.clearChecked();
+		} catch (IOException ioe) {
+			LOGGER.log(Level.WARNING, ioe.getMessage(), ioe);
+		}
+	}
+
+	public void clearChecked() throws IOException {
+		for (Partition partition : partitions) {
+			if (!partition.isEmpty()) {
+				partition.clearChecked();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A call to {@link #removeIfChecked(Predicate)} is preferred over this.</p>
+	 *
+	 * @see #removeIfChecked(Predicate)
+	 */
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		return ioSuccessOrLog(this::removeIfChecked, filter);
+	}
+
+	/**
+	 * Same as {@link #removeIf(Predicate)}, but throws an {@link IOException}
+	 * if saving the partitions happens to throw one.
+	 * Each partition is saved once, no matter how many elements are removed from it.
+	 * A call to this is preferred over {@link #removeIf(Predicate)}.
+	 *
+	 * @param filter A predicate which returns true for elements to be removed
+	 * @return True if any elements were removed
+	 * @throws IOException If saving a partition to a file threw one
+	 * @see CollectionFileInterface#removeIfChecked(Predicate)
+	 */
+	public boolean removeIfChecked(Predicate<? super T> filter) throws IOException {
+		boolean changed = false;
+		for (Partition partition : partitions) {
+			changed |= partition.removeIfChecked(filter);
+		}
+		return changed;
+	}
+
+	/**
+	 * Splits elements into one list per partition, ordered like the partitions.
+	 */
+	private <U> List<List<U>> group(Collection<U> elements) {
+		List<List<U>> grouped = new ArrayList<>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++) {
+			grouped.add(new ArrayList<>());
+		}
+		for (U element : elements) {
+			grouped.get(partitionOf(element, partitions.size())).add(element);
+		}
+		return grouped;
+	}
+
+	/**
+	 * Saves any modifications waiting to be saved in the background in any partition.
+	 *
+	 * @return A future completing once every partition is flushed
+	 * @see FileInterface#flush()
+	 */
+	public CompletableFuture<Void> flush() {
+		return CompletableFuture.allOf(partitions.stream()
+				.map(FileInterface::flush)
+				.toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * Closes every partition.
+	 *
+	 * @throws IOException If an I/O exception occurred while closing any partition.
+	 *                     The remaining partitions are still closed
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		for (Partition partition : partitions) {
+			try {
+				partition.close();
+			} catch (IOException ioe) {
+				if (exception == null) {
+					exception = ioe;
+				} else {
+					exception.addSuppressed(ioe);
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * Create an item from an array of serialized bytes.
+	 *
+	 * @param bytes The array of serialized bytes to create an item from
+	 * @return The created item
+	 * @see CollectionFileInterface#itemFromBytes(byte[])
+	 */
+	protected abstract T itemFromBytes(byte[] bytes);
+
+	/**
+	 * Serialize an item to an array of bytes.
+	 *
+	 * @param item The item to serialize
+	 * @return The serialized item as an array of bytes
+	 * @see CollectionFileInterface#itemToBytes(Object)
+	 */
+	protected abstract byte[] itemToBytes(T item);
+
+	/**
+	 * Gets the codec used to read & write items in every partition.
+	 * Returns {@code null} by default, using {@link #itemFromBytes(byte[])}
+	 * & {@link #itemToBytes(Object)} instead.
+	 *
+	 * @return The item codec for this collection, or {@code null} to use the default
+	 * @see CollectionFileInterface#getItemCodec()
+	 */
+	protected ItemCodec<T> getItemCodec() {
+		return null;
+	}
+
+	/**
+	 * Creates the empty collection that the elements of a partition are stored in.
+	 * Creates a {@link HashSet} by default.
+	 * <p><b>NB: This is called while this interface is being constructed,
+	 * from several threads at once, and must therefore not depend on
+	 * any fields of the implementing class.</b></p>
+	 *
+	 * @param expectedSize The number of elements that are about to be added
+	 * @return The created collection
+	 * @see CollectionFileInterface#createCollection(int)
+	 */
+	protected Collection<T> createCollection(int expectedSize) {
+		return new HashSet<>((int) (expectedSize / 0.75f) + 1);
+	}
+
+	/**
+	 * A single partition, delegating serialization to the partitioned collection.
+	 */
+	private final class Partition extends CollectionFileInterface<T> {
+		private Partition(String path) throws IOException {
+			super(path, fixedLength, options);
+		}
+
+		@Override
+		protected T itemFromBytes(byte[] bytes) {
+			return PartitionedCollectionFileInterface.this.itemFromBytes(bytes);
+		}
+
+		@Override
+		protected byte[] itemToBytes(T item) {
+			return PartitionedCollectionFileInterface.this.itemToBytes(item);
+		}
+
+		@Override
+		protected ItemCodec<T> getItemCodec() {
+			ItemCodec<T> codec = PartitionedCollectionFileInterface.this.getItemCodec();
+			return codec != null ? codec : super.getItemCodec();
+		}
+
+		@Override
+		protected Collection<T> createCollection(int expectedSize) {
+			return PartitionedCollectionFileInterface.this.createCollection(expectedSize);
+		}
+	}
+
+	/**
+	 * Iterates every partition in turn.
+	 * Removing elements through the iterator removes them from their partition.
+	 */
+	private final class PartitionIterator implements Iterator<T> {
+		private int partition;
+		private Iterator<T> current;
+		/**
+		 * The iterator that returned the last element,
+		 * as {@link #hasNext()} may have moved on to the next partition since.
+		 */
+		private Iterator<T> last;
+
+		private PartitionIterator() {
+			this.partition = 0;
+			this.current = partitions.get(0).iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!current.hasNext() && partition < partitions.size() - 1) {
+				current = partitions.get(++partition).iterator();
+			}
+			return current.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = current;
+			return current.next();
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			last.remove();
+			last = null;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Compresses & decompresses the serialized values of {@link FileInterface}s.</p>
+ * <p>Compressed values are framed by a header containing a magic number,
+ * the compression algorithm, and the uncompressed length.
+ * Values without this header are read as uncompressed,
+ * so files can be read regardless of the compression they were saved with.</p>
+ *
+ * @see FileOptions#withCompression(FileOptions.Compression)
+ */
+final class PayloadCompression {
+	/**
+	 * Starts the header of compressed files. Like the header of
+	 * {@link CollectionFileInterface}s, the first byte is negative, so uncompressed values
+	 * can only be mistaken for compressed ones if they start with the exact same bytes.
+	 */
+	private static final int MAGIC = 0xC55A4950;
+	private static final byte ALGORITHM_DEFLATE = 1;
+	private static final int HEADER_LENGTH = 12;
+	/**
+	 * The max ratio Deflate can compress a value by,
+	 * bounding the uncompressed length a header can claim.
+	 */
+	private static final int MAX_DEFLATE_RATIO = 1032;
+	/**
+	 * The max length of an array, as some VMs reserve a few header words in arrays.
+	 */
+	private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+	private PayloadCompression() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * Compresses a serialized value, unless compressing it doesn't make it any smaller.
+	 *
+	 * @param bytes       The serialized value
+	 * @param compression The compression to use
+	 * @return The compressed value including its header,
+	 *         or the original bytes if the value wasn't compressed
+	 */
+	static byte[] compress(byte[] bytes, FileOptions.Compression compression) {
+		if (compression == FileOptions.Compression.NONE || bytes.length <= HEADER_LENGTH) {
+			return bytes;
+		}
+		Deflater deflater = new Deflater(compression.getLevel());
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			ByteBuffer compressed = ByteBuffer.allocate(Math.max(64, bytes.length / 2))
+					.putInt(MAGIC)
+					.put(ALGORITHM_DEFLATE)
+					.put(new byte[3])
+					.putInt(bytes.length);
+			while (!deflater.finished()) {
+				if (!compressed.hasRemaining()) {
+					if (compressed.capacity() >= bytes.length) {
+						// Not worth it, the compressed value is already as large
+						return bytes;
+					}
+					compressed = ByteBuffer.allocate(compressed.capacity() * 2)
+							.put(compressed.flip());
+				}
+				deflater.deflate(compressed);
+			}
+			return compressed.position() < bytes.length
+					? Arrays.copyOf(compressed.array(), compressed.position())
+					: bytes;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Checks if a buffer contains a compressed value.
+	 *
+	 * @param buffer The buffer to check, from its position
+	 * @return If the buffer starts with the header of a compressed value
+	 */
+	static boolean isCompressed(ByteBuffer buffer) {
+		return buffer.remaining() >= HEADER_LENGTH && buffer.getInt(buffer.position()) == MAGIC;
+	}
+
+	/**
+	 * Decompresses a compressed value.
+	 *
+	 * @param buffer The buffer containing the compressed value, from its position to its limit
+	 * @return The decompressed value
+	 * @throws IOException If the value is corrupt, or compressed with an unknown algorithm
+	 */
+	static byte[] decompress(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		byte algorithm = buffer.get(start + Integer.BYTES);
+		if (algorithm != ALGORITHM_DEFLATE) {
+			throw new IOException("Unknown compression algorithm: " + algorithm);
+		}
+		int uncompressedLength = buffer.getInt(start + 2 * Integer.BYTES);
+		long maxLength = Math.min(
+				MAX_LENGTH,
+				(long) (buffer.remaining() - HEADER_LENGTH) * MAX_DEFLATE_RATIO
+		);
+		if (uncompressedLength < 0 || uncompressedLength > maxLength) {
+			throw new IOException(String.format(
+					"Compressed value claims to be %s bytes long, expected at most %s",
+					uncompressedLength,
+					maxLength
+			));
+		}
+		byte[] bytes = new byte[uncompressedLength];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(buffer.duplicate().position(start + HEADER_LENGTH));
+			int length = 0;
+			while (!inflater.finished()) {
+				int inflated = inflater.inflate(bytes, length, bytes.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Compressed value ended unexpectedly");
+				}
+				length += inflated;
+			}
+			if (length != bytes.length) {
+				throw new IOException(String.format(
+						"Decompressed value is %s bytes long, expected %s",
+						length,
+						bytes.length
+				));
+			}
+			return bytes;
+		} catch (DataFormatException dfe) {
+			throw new IOException("Compressed value is corrupt", dfe);
+		} finally {
+			inflater.end();
+		}
+	}
+}
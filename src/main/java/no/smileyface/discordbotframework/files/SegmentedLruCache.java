@@ -0,0 +1,271 @@
+package no.smileyface.discordbotframework.files;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A bounded in-memory cache in front of file-backed storage,
+ * such as the entries of a {@link MapFileInterface}.
+ * The owner reads misses from its files, and puts them in the cache.</p>
+ * <p>Entries are evicted by segmented LRU, which takes how often entries are used into account:
+ * New entries start out on probation, and are only protected once they're used again.
+ * Evictions are taken from the least recently used entries on probation,
+ * so a scan through many entries that are used once doesn't evict the ones used often.</p>
+ * <p>The capacity is either a number of entries, or a number of bytes,
+ * in which case each entry is weighed by its serialized size.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public final class SegmentedLruCache<K, V> {
+	/**
+	 * Estimated overhead of each entry in bytes, beyond its serialized size.
+	 */
+	private static final int ENTRY_OVERHEAD = 64;
+	private static final double PROTECTED_SHARE = 0.8;
+
+	private final long capacity;
+	private final boolean weighed;
+	private final LinkedHashMap<K, Entry<V>> probation;
+	private final LinkedHashMap<K, Entry<V>> protectedEntries;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+	private long probationWeight;
+	private long protectedWeight;
+
+	private SegmentedLruCache(long capacity, boolean weighed) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The cache capacity can't be negative");
+		}
+		this.capacity = capacity;
+		this.weighed = weighed;
+		this.probation = new LinkedHashMap<>(16, 0.75f, true);
+		this.protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Creates a cache holding at most a number of entries.
+	 *
+	 * @param maxEntries The max number of entries to keep cached. 0 disables the cache
+	 * @param <K>        The key type
+	 * @param <V>        The value type
+	 * @return The created cache
+	 */
+	public static <K, V> SegmentedLruCache<K, V> ofEntries(long maxEntries) {
+		return new SegmentedLruCache<>(maxEntries, false);
+	}
+
+	/**
+	 * Creates a cache holding entries with a total weight of at most a number of bytes.
+	 *
+	 * @param maxBytes The max number of bytes to keep cached. 0 disables the cache
+	 * @param <K>      The key type
+	 * @param <V>      The value type
+	 * @return The created cache
+	 */
+	public static <K, V> SegmentedLruCache<K, V> ofBytes(long maxBytes) {
+		return new SegmentedLruCache<>(maxBytes, true);
+	}
+
+	/**
+	 * Checks if entries are weighed by their size, rather than counted.
+	 *
+	 * @return If the capacity is a number of bytes
+	 */
+	public boolean isWeighed() {
+		return weighed;
+	}
+
+	/**
+	 * Gets a cached value, and counts it as a hit or a miss.
+	 *
+	 * @param key The key of the value
+	 * @return The cached value, or {@code null} if it's not cached
+	 */
+	synchronized V get(K key) {
+		Entry<V> entry = protectedEntries.get(key);
+		if (entry == null) {
+			entry = probation.remove(key);
+			if (entry != null) {
+				// Used again, so it's promoted
+				probationWeight -= entry.weight;
+				protectedEntries.put(key, entry);
+				protectedWeight += entry.weight;
+				demoteProtected();
+			}
+		}
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Checks if a key is cached, without affecting the order of eviction or the counters.
+	 *
+	 * @param key The key to check for
+	 * @return If the key is cached
+	 */
+	synchronized boolean contains(K key) {
+		return protectedEntries.containsKey(key) || probation.containsKey(key);
+	}
+
+	/**
+	 * Caches a value, replacing any cached value of the same key.
+	 *
+	 * @param key             The key of the value
+	 * @param value           The value to cache
+	 * @param serializedBytes The size of the serialized key & value.
+	 *                        Only used if the capacity is a number of bytes
+	 */
+	synchronized void put(K key, V value, long serializedBytes) {
+		if (capacity == 0) {
+			return;
+		}
+		long weight = weighed ? serializedBytes + ENTRY_OVERHEAD : 1;
+		if (weight > capacity) {
+			remove(key);
+			return;
+		}
+		Entry<V> previous = protectedEntries.get(key);
+		if (previous != null) {
+			protectedEntries.put(key, new Entry<>(value, weight));
+			protectedWeight += weight - previous.weight;
+			demoteProtected();
+		} else {
+			previous = probation.put(key, new Entry<>(value, weight));
+			probationWeight += weight - (previous == null ? 0 : previous.weight);
+		}
+		evict();
+	}
+
+	/**
+	 * Removes a value from the cache.
+	 *
+	 * @param key The key of the value
+	 */
+	synchronized void remove(K key) {
+		Entry<V> removed = protectedEntries.remove(key);
+		if (removed != null) {
+			protectedWeight -= removed.weight;
+		}
+		removed = probation.remove(key);
+		if (removed != null) {
+			probationWeight -= removed.weight;
+		}
+	}
+
+	/**
+	 * Moves the least recently used protected entries back on probation,
+	 * until the protected segment fits within its share of the capacity.
+	 */
+	private void demoteProtected() {
+		long protectedCapacity = (long) (capacity * PROTECTED_SHARE);
+		Iterator<Map.Entry<K, Entry<V>>> iterator = protectedEntries.entrySet().iterator();
+		while (protectedWeight > protectedCapacity && iterator.hasNext()) {
+			Map.Entry<K, Entry<V>> eldest = iterator.next();
+			iterator.remove();
+			protectedWeight -= eldest.getValue().weight;
+			probation.put(eldest.getKey(), eldest.getValue());
+			probationWeight += eldest.getValue().weight;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries on probation until the cache fits its capacity.
+	 */
+	private void evict() {
+		Iterator<Entry<V>> iterator = probation.values().iterator();
+		while (probationWeight + protectedWeight > capacity && iterator.hasNext()) {
+			probationWeight -= iterator.next().weight;
+			iterator.remove();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Gets the number of lookups that found a cached value.
+	 *
+	 * @return The number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of lookups that didn't find a cached value,
+	 * and had to read from the file instead.
+	 *
+	 * @return The number of cache misses
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of values that were evicted to make room for others.
+	 *
+	 * @return The number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the share of lookups that found a cached value.
+	 *
+	 * @return The hit rate between 0 & 1, or 0 if there haven't been any lookups
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long lookups = hitCount + getMissCount();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Gets the number of cached values.
+	 *
+	 * @return The number of cached values
+	 */
+	public synchronized int size() {
+		return probation.size() + protectedEntries.size();
+	}
+
+	/**
+	 * Gets the total weight of the cached values,
+	 * in bytes if {@link #isWeighed() weighed}, or else the number of values.
+	 *
+	 * @return The total weight of the cached values
+	 */
+	public synchronized long getWeight() {
+		return probationWeight + protectedWeight;
+	}
+
+	/**
+	 * Gets the max total weight of the cached values.
+	 *
+	 * @return The capacity in bytes if {@link #isWeighed() weighed},
+	 *         or else in number of values
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final long weight;
+
+		private Entry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,582 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import no.smileyface.discordbotframework.data.LongHashSet;
+
+/**
+ * <p>An interface for persistent storage of huge, read-mostly sets of {@code long}s,
+ * such as lists of blocked user IDs.</p>
+ * <p>The elements are stored sorted in a memory-mapped file,
+ * and looked up by binary search directly on the mapping.
+ * Added & removed elements are kept as small deltas in memory,
+ * and appended to a log next to the file.
+ * Once the log grows past the compaction threshold,
+ * the deltas are merged into the file in the background.
+ * Heap usage is therefore proportional to the number of deltas, not to the size of the set.</p>
+ * <p>Merging blocks modifications, but lookups are only blocked while the file is replaced.
+ * The log is replayed when the file is opened, so closing doesn't merge the deltas.</p>
+ * <p>Of the {@link FileOptions}, the {@link FileOptions.Durability durability} applies to the log,
+ * and the {@link FileOptions#withAppendLog(long) compaction threshold} sets how large
+ * the log may grow before it's merged.</p>
+ *
+ * @see LongCollectionFileInterface
+ */
+public class SortedLongFileInterface implements Closeable {
+	private static final Logger LOGGER = Logger.getLogger(SortedLongFileInterface.class.getName());
+	private static final ExecutorService MERGER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "sorted-long-merger");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final int MAGIC = 0xC5534C31;
+	private static final int HEADER_LENGTH = 8;
+	private static final long DEFAULT_MERGE_THRESHOLD = 64 * 1024;
+	private static final byte LOG_ADD = 1;
+	private static final byte LOG_REMOVE = 2;
+	private static final int LOG_RECORD_LENGTH = 1 + Long.BYTES;
+	/**
+	 * Releases a mapping right away, instead of once it's garbage collected.
+	 */
+	private static final Consumer<MappedByteBuffer> UNMAPPER = createUnmapper();
+
+	private final Path path;
+	private final Path tempPath;
+	private final Path logPath;
+	private final FileOptions options;
+	private final long mergeThreshold;
+	private final ReentrantReadWriteLock lock;
+	private final ReentrantLock modifyLock;
+	private final AtomicBoolean syncScheduled;
+	private final AtomicBoolean mergeScheduled;
+	private final ByteBuffer logRecord;
+	private final LongHashSet added;
+	private final LongHashSet removed;
+	private FileChannel logChannel;
+	private MappedByteBuffer mapping;
+	private volatile LongBuffer base;
+	/**
+	 * Why the interface can't be used anymore, or {@code null} if it can.
+	 */
+	private volatile IOException failure;
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path The path to the file this interface is for
+	 * @throws IOException If the file at the provided path cannot be read
+	 */
+	public SortedLongFileInterface(String path) throws IOException {
+		this(path, FileOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates the file interface.
+	 *
+	 * @param path    The path to the file this interface is for
+	 * @param options The {@link FileOptions} for how the set is persisted
+	 * @throws IOException If the file at the provided path cannot be read
+	 */
+	public SortedLongFileInterface(String path, FileOptions options) throws IOException {
+		long start = System.nanoTime();
+		this.path = FileInterface.BASE_PATH.resolve(path);
+		this.tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+		this.logPath = this.path.resolveSibling(this.path.getFileName() + ".log");
+		this.options = options;
+		this.mergeThreshold = options.isAppendLog()
+				? options.getLogCompactionThreshold()
+				: DEFAULT_MERGE_THRESHOLD;
+		this.lock = new ReentrantReadWriteLock();
+		this.modifyLock = new ReentrantLock();
+		this.syncScheduled = new AtomicBoolean(false);
+		this.mergeScheduled = new AtomicBoolean(false);
+		this.logRecord = ByteBuffer.allocate(LOG_RECORD_LENGTH);
+		this.added = new LongHashSet();
+		this.removed = new LongHashSet();
+		if (!Files.exists(this.path) || Files.size(this.path) == 0) {
+			writeSorted(new long[0]);
+			replaceFile();
+		}
+		this.mapping = map(this.path);
+		this.base = valuesOf(mapping);
+		long replayedBytes = replayLog();
+		this.logChannel = FileChannel.open(
+				logPath,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+		);
+		FileInterface.notifyLoaded(this.path, mapping.capacity() + replayedBytes, start);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (mapped.remaining() < HEADER_LENGTH || mapped.getInt(0) != MAGIC) {
+				throw new IOException("\"" + file + "\" is not a sorted long file");
+			}
+			if ((mapped.remaining() - HEADER_LENGTH) % Long.BYTES != 0) {
+				throw new IOException("\"" + file + "\" is truncated");
+			}
+			return mapped;
+		}
+	}
+
+	private static LongBuffer valuesOf(MappedByteBuffer mapped) {
+		return mapped.duplicate().position(HEADER_LENGTH).slice().asLongBuffer();
+	}
+
+	/**
+	 * Creates a function releasing mappings through {@code sun.misc.Unsafe},
+	 * as there's no supported way to do so before Java 19.
+	 * If it's not available, mappings are left for the garbage collector to release.
+	 *
+	 * @return The function releasing mappings
+	 */
+	private static Consumer<MappedByteBuffer> createUnmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+			unsafeField.setAccessible(true);
+			Object unsafe = unsafeField.get(null);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			return mapped -> {
+				try {
+					invokeCleaner.invoke(unsafe, mapped);
+				} catch (ReflectiveOperationException roe) {
+					LOGGER.log(Level.FINE, "Could not release a mapping", roe);
+				}
+			};
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.log(Level.FINE, "Mappings will be released by the garbage collector", e);
+			return mapped -> {
+				// Released once garbage collected
+			};
+		}
+	}
+
+	/**
+	 * Checks that a failed merge hasn't left the interface unusable.
+	 *
+	 * @throws IllegalStateException If the file couldn't be mapped again after a failed merge
+	 */
+	private void checkUsable() {
+		IOException cause = failure;
+		if (cause != null) {
+			throw new IllegalStateException("\"" + path + "\" could not be mapped", cause);
+		}
+	}
+
+	/**
+	 * Replaces the file with the temporary file,
+	 * and forces the rename to disk unless the durability is buffered.
+	 */
+	private void replaceFile() throws IOException {
+		Files.move(
+				tempPath,
+				path,
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING
+		);
+		if (options.getDurability() != FileOptions.Durability.BUFFERED) {
+			FileInterface.syncDirectory(path);
+		}
+	}
+
+	/**
+	 * Replays the log of deltas not yet merged into the file.
+	 * If the log ends with a partially written record, the partial record is discarded.
+	 *
+	 * @return The length of the replayed records
+	 */
+	private long replayLog() throws IOException {
+		if (!Files.exists(logPath)) {
+			return 0;
+		}
+		try (FileChannel log = FileChannel.open(
+				logPath,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE
+		)) {
+			ByteBuffer records = ByteBuffer.allocate(Math.toIntExact(log.size()));
+			while (records.hasRemaining() && log.read(records) != -1) {
+				// Keep reading until the whole log is read
+			}
+			records.flip();
+			while (records.remaining() >= LOG_RECORD_LENGTH) {
+				byte operation = records.get();
+				long value = records.getLong();
+				switch (operation) {
+					case LOG_ADD -> applyAdd(value);
+					case LOG_REMOVE -> applyRemove(value);
+					default -> throw new IOException(String.format(
+							"Corrupt log record in \"%s\" at position %s",
+							logPath,
+							records.position() - LOG_RECORD_LENGTH
+					));
+				}
+			}
+			if (records.hasRemaining()) {
+				LOGGER.log(
+						Level.WARNING,
+						"Discarding partially written record at the end of {0}",
+						logPath
+				);
+				log.truncate(records.position());
+			}
+			return records.position();
+		}
+	}
+
+	/**
+	 * Checks if the set contains a value.
+	 *
+	 * @param value The value to check for
+	 * @return If the set contains the value
+	 */
+	public boolean containsLong(long value) {
+		lock.readLock().lock();
+		try {
+			checkUsable();
+			return containsLocked(value);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private boolean containsLocked(long value) {
+		if (added.contains(value)) {
+			return true;
+		}
+		return !removed.contains(value) && baseContains(base, value);
+	}
+
+	private static boolean baseContains(LongBuffer base, long value) {
+		int low = 0;
+		int high = base.limit() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleValue = base.get(middle);
+			if (middleValue < value) {
+				low = middle + 1;
+			} else if (middleValue > value) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a value to the set.
+	 *
+	 * @param value The value to add
+	 * @return If the set changed as a result of the call
+	 * @throws IOException If the addition couldn't be appended to the log
+	 */
+	public boolean addLong(long value) throws IOException {
+		return modify(LOG_ADD, value);
+	}
+
+	/**
+	 * Removes a value from the set.
+	 *
+	 * @param value The value to remove
+	 * @return If the set changed as a result of the call
+	 * @throws IOException If the removal couldn't be appended to the log
+	 */
+	public boolean removeLong(long value) throws IOException {
+		return modify(LOG_REMOVE, value);
+	}
+
+	private boolean modify(byte operation, long value) throws IOException {
+		modifyLock.lock();
+		try {
+			checkUsable();
+			lock.writeLock().lock();
+			try {
+				boolean changed = operation == LOG_ADD ? applyAdd(value) : applyRemove(value);
+				if (!changed) {
+					return false;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			logRecord.clear().put(operation).putLong(value).flip();
+			while (logRecord.hasRemaining()) {
+				logChannel.write(logRecord);
+			}
+			applyDurability();
+			if (logChannel.size() > mergeThreshold && mergeScheduled.compareAndSet(false, true)) {
+				MERGER.execute(() -> {
+					try {
+						merge();
+					} catch (IOException ioe) {
+						LOGGER.log(Level.WARNING, "Could not merge deltas into " + path, ioe);
+					}
+				});
+			}
+			return true;
+		} finally {
+			modifyLock.unlock();
+		}
+	}
+
+	private boolean applyAdd(long value) {
+		if (containsLocked(value)) {
+			return false;
+		}
+		if (!removed.remove(value)) {
+			added.add(value);
+		}
+		return true;
+	}
+
+	private boolean applyRemove(long value) {
+		if (!containsLocked(value)) {
+			return false;
+		}
+		if (!added.remove(value)) {
+			removed.add(value);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of values in the set.
+	 *
+	 * @return The number of values in the set
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			checkUsable();
+			return base.limit() + added.size() - removed.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks if the set is empty.
+	 *
+	 * @return If the set contains no values
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Performs an action for every value in the set.
+	 * Values in the file are visited in ascending order, followed by any unmerged additions.
+	 * The action must not modify this set.
+	 *
+	 * @param action The action to perform for each value
+	 */
+	public void forEachLong(LongConsumer action) {
+		lock.readLock().lock();
+		try {
+			checkUsable();
+			LongBuffer values = base;
+			for (int i = 0; i < values.limit(); i++) {
+				long value = values.get(i);
+				if (!removed.contains(value)) {
+					action.accept(value);
+				}
+			}
+			added.forEach(action::accept);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Merges the in-memory deltas into the file, and clears the log.
+	 * Modifications wait for the merge to finish,
+	 * while lookups only wait for the merged file to replace the old one.
+	 *
+	 * @throws IOException           If the merged file couldn't be written
+	 * @throws IllegalStateException If a previous merge left the interface unusable
+	 */
+	public void merge() throws IOException {
+		modifyLock.lock();
+		try {
+			mergeScheduled.set(false);
+			checkUsable();
+			if (!logChannel.isOpen() || added.isEmpty() && removed.isEmpty()) {
+				return;
+			}
+			// No modifications can happen while holding the modify lock,
+			// so the deltas can be read without blocking lookups
+			long[] additions = added.toLongArray();
+			Arrays.sort(additions);
+			writeMerged(base, additions, removed);
+			// Mapped before the old mapping is released, so nothing can fail after the file
+			// is replaced. The mapping stays valid once the file is renamed
+			MappedByteBuffer merged = map(tempPath);
+			lock.writeLock().lock();
+			try {
+				// No lookups can use the old mapping now, so it's released before the file
+				// is replaced, as mapped files can't be replaced on some platforms
+				UNMAPPER.accept(mapping);
+				try {
+					replaceFile();
+				} catch (IOException | RuntimeException e) {
+					UNMAPPER.accept(merged);
+					remapAfterFailedReplace(e);
+					throw e;
+				}
+				this.mapping = merged;
+				this.base = valuesOf(merged);
+				added.clear();
+				removed.clear();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			// If this crashes before the log is cleared, replaying it is a no-op
+			logChannel.truncate(0);
+		} finally {
+			modifyLock.unlock();
+		}
+	}
+
+	/**
+	 * Maps the old file again after it couldn't be replaced.
+	 * If that fails too, the released mapping can't be used,
+	 * so the interface is left unusable instead of treating every merged value as absent.
+	 *
+	 * @param replaceFailure Why the file couldn't be replaced
+	 */
+	private void remapAfterFailedReplace(Exception replaceFailure) {
+		try {
+			this.mapping = map(path);
+			this.base = valuesOf(mapping);
+		} catch (IOException | RuntimeException e) {
+			replaceFailure.addSuppressed(e);
+			this.base = LongBuffer.allocate(0);
+			this.failure = e instanceof IOException ioe ? ioe : new IOException(e);
+		}
+	}
+
+	private void writeSorted(long[] values) throws IOException {
+		writeMerged(LongBuffer.allocate(0), values, new LongHashSet());
+	}
+
+	/**
+	 * Writes the sorted union of the base values & the additions,
+	 * without the removals, to the temporary file.
+	 */
+	private void writeMerged(
+			LongBuffer baseValues,
+			long[] additions,
+			LongHashSet removals
+	) throws IOException {
+		try (FileChannel channel = FileChannel.open(
+				tempPath,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			buffer.putInt(MAGIC).putInt(0);
+			int baseIndex = 0;
+			int additionIndex = 0;
+			while (baseIndex < baseValues.limit() || additionIndex < additions.length) {
+				long value;
+				if (additionIndex == additions.length || baseIndex < baseValues.limit()
+						&& baseValues.get(baseIndex) < additions[additionIndex]) {
+					value = baseValues.get(baseIndex++);
+					if (removals.contains(value)) {
+						continue;
+					}
+				} else {
+					value = additions[additionIndex++];
+				}
+				if (!buffer.hasRemaining()) {
+					writeFully(channel, buffer.flip());
+					buffer.clear();
+				}
+				buffer.putLong(value);
+			}
+			writeFully(channel, buffer.flip());
+			// Forced regardless of durability, or a crash could leave the renamed file torn
+			channel.force(true);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private void applyDurability() throws IOException {
+		switch (options.getDurability()) {
+			case SYNC -> logChannel.force(false);
+			case PERIODIC -> scheduleSync();
+			case BUFFERED -> {
+				// Leave flushing to the OS
+			}
+		}
+	}
+
+	private void scheduleSync() {
+		if (syncScheduled.compareAndSet(false, true)) {
+			FileInterface.SYNCER.schedule(() -> {
+				syncScheduled.set(false);
+				modifyLock.lock();
+				try {
+					if (logChannel.isOpen()) {
+						logChannel.force(false);
+					}
+				} catch (IOException ioe) {
+					LOGGER.log(Level.WARNING, "Could not force " + logPath + " to disk", ioe);
+				} finally {
+					modifyLock.unlock();
+				}
+			}, options.getSyncInterval().toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Forces the log to disk, and closes it.
+	 * Any deltas are left in the log, to be replayed when the file is opened again.
+	 *
+	 * @throws IOException If an I/O exception occurred while forcing or closing the log
+	 */
+	@Override
+	public void close() throws IOException {
+		modifyLock.lock();
+		try {
+			if (logChannel.isOpen()) {
+				logChannel.force(false);
+				logChannel.close();
+			}
+		} finally {
+			modifyLock.unlock();
+		}
+	}
+}
@@ -1,8 +1,6 @@
 package no.smileyface.discordbotframework.files.properties;
 
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -12,31 +10,26 @@ import no.smileyface.discordbotframework.data.Node;
 
 /**
  * Utility class for loading bot properties.
+ *
+ * @see PropertyWatcher
  */
 public class PropertyLoader {
 	private PropertyLoader() {
 		throw new IllegalStateException("Utility class");
 	}
 
-	private static void throwLine(LineNumberReader reader) throws PropertyLoadException {
-		throw new PropertyLoadException(String.format(
-				"Invalid .properties formatting (Line %s)",
-				reader.getLineNumber()
-		));
-	}
-
 	/**
-	 * Loads the property tree from the .properties file.
+	 * Finds the .properties file in the bot directory.
+	 * If there are several, the first one found is used.
 	 *
-	 * @throws PropertyLoadException If loading the properties failed
+	 * @return The path to the found .properties file
+	 * @throws PropertyLoadException If the bot directory can't be read,
+	 *                               or if it contains no .properties file
 	 */
-	public static Node<String, String> loadProperties() throws PropertyLoadException {
-		Node<String, String> root = new Node<>();
-
-		Path filename;
+	static Path findPropertiesFile() throws PropertyLoadException {
 		try (Stream<Path> fileStream = Files.list(FileSystems.getDefault().getPath(""))) {
 			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.properties");
-			filename = fileStream
+			return fileStream
 					.filter(file -> matcher.matches(file.getFileName()))
 					.findFirst()
 					.orElseThrow(() -> new PropertyLoadException("No .properties file found"));
@@ -46,27 +39,123 @@ public class PropertyLoader {
 					ioe
 			);
 		}
-		try (LineNumberReader reader = new LineNumberReader(new FileReader(filename.toFile()))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				if (!line.isBlank()) {
-					String[] splitLine = line.split("=", 2);
-					if (splitLine.length < 2) {
-						throwLine(reader);
-					}
-					String[] treePath = splitLine[0].strip().split("\\.");
-					Node<String, String> currentNode = root;
-					for (String node : treePath) {
-						currentNode = currentNode.getOrAddChild(node);
+	}
+
+	/**
+	 * Loads the property tree from the .properties file.
+	 *
+	 * @throws PropertyLoadException If loading the properties failed
+	 * @see PropertyWatcher#watch()
+	 */
+	public static Node<String, String> loadProperties() throws PropertyLoadException {
+		return loadProperties(findPropertiesFile());
+	}
+
+	/**
+	 * Loads the property tree from a specific .properties file.
+	 *
+	 * @param file The .properties file to load
+	 * @throws PropertyLoadException If loading the properties failed
+	 */
+	public static Node<String, String> loadProperties(Path file) throws PropertyLoadException {
+		String content;
+		try {
+			content = Files.readString(file);
+		} catch (IOException ioe) {
+			throw new PropertyLoadException("Could not load the .properties file", ioe);
+		}
+		return parse(content);
+	}
+
+	/**
+	 * Parses the contents of a .properties file into a property tree.
+	 * The contents are parsed in a single pass, only allocating strings for
+	 * the individual key segments & values.
+	 *
+	 * @param content The contents of the .properties file
+	 * @return The root of the parsed property tree
+	 * @throws PropertyLoadException If the contents are not valid .properties formatting
+	 */
+	static Node<String, String> parse(CharSequence content) throws PropertyLoadException {
+		Node<String, String> root = new Node<>();
+		int length = content.length();
+		int lineNumber = 0;
+		int lineStart = 0;
+		while (lineStart < length) {
+			lineNumber++;
+			int lineEnd = lineStart;
+			int separator = -1;
+			boolean blank = true;
+			while (lineEnd < length) {
+				char c = content.charAt(lineEnd);
+				if (c == '\n' || c == '\r') {
+					break;
+				}
+				if (separator == -1 && c == '=') {
+					separator = lineEnd;
+				}
+				if (!Character.isWhitespace(c)) {
+					blank = false;
+				}
+				lineEnd++;
+			}
+
+			if (!blank) {
+				if (separator == -1) {
+					throw new PropertyLoadException(String.format(
+							"Invalid .properties formatting (Line %s)",
+							lineNumber
+					));
+				}
+				Node<String, String> currentNode = root;
+				int keyStart = skipWhitespace(content, lineStart, separator);
+				int keyEnd = trimWhitespace(content, keyStart, separator);
+				// Like String.split, trailing empty segments (e.g. in "a.b.") are dropped
+				int segmentsEnd = keyEnd;
+				while (segmentsEnd > keyStart && content.charAt(segmentsEnd - 1) == '.') {
+					segmentsEnd--;
+				}
+				// A key of only dots has no segments at all, while an empty key is one segment
+				if (segmentsEnd > keyStart || keyEnd == keyStart) {
+					int segmentStart = keyStart;
+					for (int i = keyStart; i <= segmentsEnd; i++) {
+						if (i == segmentsEnd || content.charAt(i) == '.') {
+							currentNode = currentNode.getOrAddChild(
+									content.subSequence(segmentStart, i).toString()
+							);
+							segmentStart = i + 1;
+						}
 					}
-					currentNode.setValue(splitLine[1].strip());
 				}
+				int valueStart = skipWhitespace(content, separator + 1, lineEnd);
+				int valueEnd = trimWhitespace(content, valueStart, lineEnd);
+				currentNode.setValue(content.subSequence(valueStart, valueEnd).toString());
 			}
-		} catch (IOException ioe) {
-			throw new PropertyLoadException("Could not load the .properties file", ioe);
+
+			// Treat "\r\n" as a single line break
+			if (lineEnd + 1 < length
+					&& content.charAt(lineEnd) == '\r'
+					&& content.charAt(lineEnd + 1) == '\n') {
+				lineEnd++;
+			}
+			lineStart = lineEnd + 1;
 		}
 		return root;
 	}
 
+	private static int skipWhitespace(CharSequence content, int from, int to) {
+		int index = from;
+		while (index < to && Character.isWhitespace(content.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
 
+	private static int trimWhitespace(CharSequence content, int from, int to) {
+		int index = to;
+		while (index > from && Character.isWhitespace(content.charAt(index - 1))) {
+			index--;
+		}
+		return index;
+	}
 }
@@ -0,0 +1,230 @@
+package no.smileyface.discordbotframework.files.properties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import no.smileyface.discordbotframework.data.Node;
+
+/**
+ * <p>Watches the bot's .properties file, and reloads the property tree whenever it changes.</p>
+ * <p>Every reload parses the file into a brand-new property tree,
+ * which is then published atomically. Readers calling {@link #getProperties()} will
+ * therefore always see a complete & consistent tree, without any locking.
+ * The returned trees should be treated as read-only.</p>
+ *
+ * @see PropertyLoader
+ */
+public final class PropertyWatcher implements Closeable {
+	private static final Logger LOGGER = Logger.getLogger(PropertyWatcher.class.getName());
+	private static final long DEBOUNCE_MILLIS = 100;
+
+	private final Path file;
+	private final AtomicReference<Snapshot> snapshot;
+	private final Collection<Consumer<Set<String>>> listeners;
+	private final WatchService watchService;
+	private final Thread watchThread;
+
+	/**
+	 * Creates a property watcher for a specific .properties file,
+	 * loading the initial property tree right away.
+	 *
+	 * @param file The .properties file to watch
+	 * @throws PropertyLoadException If the initial load failed, or the file can't be watched
+	 * @see #watch()
+	 */
+	public PropertyWatcher(Path file) throws PropertyLoadException {
+		this.file = file.toAbsolutePath();
+		this.snapshot = new AtomicReference<>(new Snapshot(PropertyLoader.loadProperties(file)));
+		this.listeners = new CopyOnWriteArrayList<>();
+		Path directory = this.file.getParent();
+		try {
+			this.watchService = directory.getFileSystem().newWatchService();
+			directory.register(
+					watchService,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY
+			);
+		} catch (IOException ioe) {
+			throw new PropertyLoadException("Could not watch the .properties file", ioe);
+		}
+		this.watchThread = new Thread(this::watchLoop, "property-watcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Creates a property watcher for the .properties file in the bot directory.
+	 *
+	 * @return The created property watcher
+	 * @throws PropertyLoadException If the initial load failed, or the file can't be watched
+	 * @see PropertyLoader#loadProperties()
+	 */
+	public static PropertyWatcher watch() throws PropertyLoadException {
+		return new PropertyWatcher(PropertyLoader.findPropertiesFile());
+	}
+
+	/**
+	 * Gets the most recently loaded property tree.
+	 *
+	 * @return The current property tree. This should not be modified
+	 */
+	public Node<String, String> getProperties() {
+		return snapshot.get().root;
+	}
+
+	/**
+	 * Adds a listener that is notified every time the properties are reloaded.
+	 * Listeners are run on the watcher thread, and should return quickly.
+	 *
+	 * @param listener A consumer accepting the full keys (e.g. {@code "bot.active"})
+	 *                 of every property that was added, changed or removed
+	 */
+	public void addListener(Consumer<Set<String>> listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Consumer<Set<String>> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Reloads the property tree from the .properties file,
+	 * and notifies listeners if anything changed.
+	 * If the file can't be parsed, the current property tree is kept.
+	 * Only called from the watcher thread, so listeners are notified in the order of reloads.
+	 *
+	 * @throws PropertyLoadException If the file couldn't be loaded
+	 */
+	private void reload() throws PropertyLoadException {
+		Snapshot reloaded = new Snapshot(PropertyLoader.loadProperties(file));
+		Snapshot previous = snapshot.getAndSet(reloaded);
+		Set<String> changedKeys = new HashSet<>();
+		reloaded.flattened.forEach((key, value) -> {
+			if (!Objects.equals(previous.flattened.get(key), value)) {
+				changedKeys.add(key);
+			}
+		});
+		previous.flattened.keySet().forEach(key -> {
+			if (!reloaded.flattened.containsKey(key)) {
+				changedKeys.add(key);
+			}
+		});
+		if (!changedKeys.isEmpty()) {
+			Set<String> unmodifiableKeys = Collections.unmodifiableSet(changedKeys);
+			listeners.forEach(listener -> {
+				try {
+					listener.accept(unmodifiableKeys);
+				} catch (RuntimeException re) {
+					// Would otherwise stop the watcher thread, and with it every later reload
+					LOGGER.log(Level.WARNING, "A property listener threw an exception", re);
+				}
+			});
+		}
+	}
+
+	private void watchLoop() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey key = watchService.take();
+				boolean changed = isFileChanged(key);
+				// Editors often write a file in several steps, wait until they're done
+				while (changed && !Thread.currentThread().isInterrupted()) {
+					if (!key.reset()) {
+						return;
+					}
+					WatchKey nextKey = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+					if (nextKey == null) {
+						break;
+					}
+					key = nextKey;
+					isFileChanged(key);
+				}
+				if (changed) {
+					try {
+						reload();
+					} catch (PropertyLoadException ple) {
+						LOGGER.log(Level.WARNING, "Could not reload properties, "
+								+ "keeping the previously loaded ones", ple);
+					}
+				}
+				if (!key.reset()) {
+					break;
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException ignored) {
+			// Watcher was closed, stop watching
+		}
+	}
+
+	private boolean isFileChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.context() instanceof Path changedPath
+					&& changedPath.equals(file.getFileName())) {
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Stops watching the .properties file.
+	 * The last loaded property tree is still available through {@link #getProperties()}.
+	 *
+	 * @throws IOException If the underlying watch service can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		watchThread.interrupt();
+		watchService.close();
+	}
+
+	/**
+	 * An immutable snapshot of a loaded property tree,
+	 * along with a flattened view of it used to detect changed keys.
+	 */
+	private static final class Snapshot {
+		private final Node<String, String> root;
+		private final Map<String, String> flattened;
+
+		private Snapshot(Node<String, String> root) {
+			this.root = root;
+			this.flattened = new HashMap<>();
+			flatten(root, "", flattened);
+		}
+
+		private static void flatten(
+				Node<String, String> node,
+				String prefix,
+				Map<String, String> flattened
+		) {
+			for (Map.Entry<String, Node<String, String>> child : node.getChildMap().entrySet()) {
+				String key = prefix.isEmpty() ? child.getKey() : prefix + "." + child.getKey();
+				if (child.getValue().getValue() != null) {
+					flattened.put(key, child.getValue().getValue());
+				}
+				flatten(child.getValue(), key, flattened);
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package no.smileyface.discordbotframework;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.interactions.components.buttons.ButtonStyle;
+import no.smileyface.discordbotframework.data.Node;
+import no.smileyface.discordbotframework.entities.ContextAction;
+import no.smileyface.discordbotframework.entities.GenericBotAction;
+import no.smileyface.discordbotframework.entities.MockEventFactory;
+import no.smileyface.discordbotframework.entities.context.ContextButton;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionManagerTest {
+	private ActionManager manager;
+	private ContextButton<GenericBotAction.ArgKey> contextButton;
+	private CountDownLatch started;
+	private CountDownLatch finish;
+	private Thread running;
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		this.manager = new ActionManager(m -> Set.of());
+		this.contextButton = new ContextButton<>(ButtonStyle.PRIMARY, "Test Button");
+		this.started = new CountDownLatch(1);
+		this.finish = new CountDownLatch(1);
+		new ContextAction<>(manager, Duration.ofMinutes(5), true) {
+			{
+				addButtons(contextButton);
+			}
+
+			@Override
+			protected void execute(IReplyCallback event, Node<ArgKey, Object> args) {
+				started.countDown();
+				try {
+					finish.await();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		this.running = new Thread(() -> manager.onButtonInteraction(
+				MockEventFactory.makeButtonEvent(contextButton.getId())
+		));
+		running.start();
+		started.await();
+	}
+
+	@Test
+	void testDrainWaitsForRunningActions() throws Exception {
+		CompletableFuture<Void> draining = CompletableFuture.runAsync(() -> {
+			try {
+				manager.drain(Duration.ofSeconds(10));
+			} catch (InterruptedException | TimeoutException e) {
+				throw new CompletionException(e);
+			}
+		});
+		assertThrows(
+				TimeoutException.class,
+				() -> draining.get(100, TimeUnit.MILLISECONDS)
+		);
+		finish.countDown();
+		draining.get(10, TimeUnit.SECONDS);
+		running.join();
+	}
+
+	@Test
+	void testDrainTimesOut() throws InterruptedException {
+		assertThrows(TimeoutException.class, () -> manager.drain(Duration.ofMillis(50)));
+		finish.countDown();
+		running.join();
+	}
+
+	@Test
+	void testCloseClosesRegisteredFiles() throws Exception {
+		AtomicBoolean closed = new AtomicBoolean(false);
+		manager.registerFile(() -> closed.set(true));
+		finish.countDown();
+		running.join();
+		manager.drain(Duration.ofSeconds(10));
+		manager.close();
+		assertTrue(closed.get());
+	}
+}
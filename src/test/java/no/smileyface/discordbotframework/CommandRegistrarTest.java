@@ -0,0 +1,51 @@
+package no.smileyface.discordbotframework;
+
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRegistrarTest {
+	private static final Map<String, String> REGISTERED = Map.of("play", "a", "stop", "b");
+
+	@Test
+	void testUnchangedCommandsAreSkipped() {
+		CommandRegistrar.Changes changes = CommandRegistrar.diff(REGISTERED, REGISTERED);
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	void testFirstRunUpsertsEveryCommand() {
+		CommandRegistrar.Changes changes = CommandRegistrar.diff(Map.of(), REGISTERED);
+		assertEquals(Set.of("play", "stop"), changes.upserted);
+		assertEquals(Set.of(), changes.removed);
+	}
+
+	@Test
+	void testChangedCommandIsUpserted() {
+		CommandRegistrar.Changes changes = CommandRegistrar.diff(
+				REGISTERED,
+				Map.of("play", "c", "stop", "b")
+		);
+		assertEquals(Set.of("play"), changes.upserted);
+		assertEquals(Set.of(), changes.removed);
+	}
+
+	@Test
+	void testRemovedCommandIsRemoved() {
+		CommandRegistrar.Changes changes = CommandRegistrar.diff(REGISTERED, Map.of("play", "a"));
+		assertEquals(Set.of(), changes.upserted);
+		assertEquals(Set.of("stop"), changes.removed);
+	}
+
+	@Test
+	void testAddedNicknameIsUpserted() {
+		// A nickname is registered as its own command, with the same data as the original
+		CommandRegistrar.Changes changes = CommandRegistrar.diff(
+				REGISTERED,
+				Map.of("play", "a", "stop", "b", "p", "a")
+		);
+		assertEquals(Set.of("p"), changes.upserted);
+		assertEquals(Set.of(), changes.removed);
+	}
+}
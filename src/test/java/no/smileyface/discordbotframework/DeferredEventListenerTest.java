@@ -0,0 +1,69 @@
+package no.smileyface.discordbotframework;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeferredEventListenerTest {
+	private static final class TestEvent implements GenericEvent {
+		private final long number;
+
+		private TestEvent(long number) {
+			this.number = number;
+		}
+
+		@Override
+		public JDA getJDA() {
+			return null;
+		}
+
+		@Override
+		public long getResponseNumber() {
+			return number;
+		}
+
+		@Override
+		public DataObject getRawData() {
+			return null;
+		}
+	}
+
+	@Test
+	void testEventsBeforeDelegateAreHandledInOrder() {
+		DeferredEventListener listener = new DeferredEventListener();
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		listener.onEvent(new TestEvent(0));
+		listener.onEvent(new TestEvent(1));
+		assertTrue(handled.isEmpty());
+		listener.setDelegate(event -> handled.add(event.getResponseNumber()));
+		assertEquals(List.of(0L, 1L), handled);
+		listener.onEvent(new TestEvent(2));
+		assertEquals(List.of(0L, 1L, 2L), handled);
+	}
+
+	@Test
+	void testEventsDuringSetDelegateWaitForHeldBackEvents() throws InterruptedException {
+		DeferredEventListener listener = new DeferredEventListener();
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		Thread gateway = new Thread(() -> listener.onEvent(new TestEvent(2)));
+		listener.onEvent(new TestEvent(0));
+		listener.onEvent(new TestEvent(1));
+		listener.setDelegate(event -> {
+			if (event.getResponseNumber() == 0) {
+				// Another event arrives while the held back events are being handled
+				gateway.start();
+				while (gateway.getState() != Thread.State.BLOCKED && gateway.isAlive()) {
+					Thread.onSpinWait();
+				}
+			}
+			handled.add(event.getResponseNumber());
+		});
+		gateway.join();
+		assertEquals(List.of(0L, 1L, 2L), handled);
+	}
+}
@@ -0,0 +1,58 @@
+package no.smileyface.discordbotframework;
+
+import java.util.List;
+import java.util.Set;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import no.smileyface.discordbotframework.checks.BotNotConnected;
+import no.smileyface.discordbotframework.checks.Check;
+import no.smileyface.discordbotframework.data.Node;
+import no.smileyface.discordbotframework.entities.BotAction;
+import no.smileyface.discordbotframework.entities.GenericBotAction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayRequirementsTest {
+	private static BotAction<GenericBotAction.ArgKey> createAction(Check... checks) {
+		return new BotAction<>(null, checks) {
+			@Override
+			protected void execute(IReplyCallback event, Node<ArgKey, Object> args) {
+				// Do nothing, just testing :)
+			}
+		};
+	}
+
+	@Test
+	void testNothingRequiredWithoutChecks() {
+		GatewayRequirements requirements = GatewayRequirements.of(List.of(createAction()));
+		assertTrue(requirements.getIntents().isEmpty());
+		assertTrue(requirements.getCacheFlags().isEmpty());
+		assertEquals(ChunkingFilter.NONE, requirements.getChunkingFilter());
+	}
+
+	@Test
+	void testCheckRequirementsIncludeIntentsOfCacheFlags() {
+		GatewayRequirements requirements = GatewayRequirements.of(List.of(
+				createAction(new BotNotConnected()),
+				createAction()
+		));
+		assertEquals(Set.of(GatewayIntent.GUILD_VOICE_STATES), requirements.getIntents());
+		assertEquals(Set.of(CacheFlag.VOICE_STATE), requirements.getCacheFlags());
+	}
+
+	@Test
+	void testGivenIntentsEnableTheirCacheFlags() {
+		GatewayRequirements requirements = GatewayRequirements.of(
+				List.of(createAction()),
+				GatewayIntent.GUILD_MEMBERS,
+				GatewayIntent.GUILD_EMOJIS_AND_STICKERS
+		);
+		assertEquals(Set.of(CacheFlag.EMOJI, CacheFlag.STICKER), requirements.getCacheFlags());
+		assertEquals(MemberCachePolicy.ALL, requirements.getMemberCachePolicy());
+		assertEquals(ChunkingFilter.ALL, requirements.getChunkingFilter());
+	}
+}
@@ -0,0 +1,93 @@
+package no.smileyface.discordbotframework;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageEditChannelTest {
+	private ScheduledExecutorService scheduler;
+	private List<String> edits;
+	private boolean failing;
+
+	@BeforeEach
+	void setUp() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.edits = new CopyOnWriteArrayList<>();
+		this.failing = false;
+	}
+
+	@AfterEach
+	void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	private MessageEditChannel open(Duration interval) {
+		return new MessageEditChannel(
+				scheduler,
+				interval,
+				data -> {
+					edits.add(data.getContent());
+					if (failing) {
+						return CompletableFuture.failedFuture(new IllegalStateException("Failed"));
+					}
+					return CompletableFuture.completedFuture(null);
+				},
+				channel -> { }
+		);
+	}
+
+	@Test
+	void testRapidUpdatesAreCoalesced() throws InterruptedException {
+		MessageEditChannel channel = open(Duration.ofMillis(200));
+		for (int i = 0; i <= 10; i++) {
+			channel.update("Progress " + i);
+		}
+		assertEquals(List.of("Progress 0"), edits);
+		Thread.sleep(400);
+		assertEquals(List.of("Progress 0", "Progress 10"), edits);
+		assertEquals(2, channel.getSentCount());
+		assertEquals(9, channel.getSuppressedCount());
+	}
+
+	@Test
+	void testUnchangedContentIsSuppressed() {
+		MessageEditChannel channel = open(Duration.ZERO);
+		channel.update("Votes: 1");
+		channel.update(MessageEditData.fromContent("Votes: 1"));
+		channel.update("Votes: 2");
+		assertEquals(List.of("Votes: 1", "Votes: 2"), edits);
+		assertEquals(1, channel.getSuppressedCount());
+	}
+
+	@Test
+	void testFailedEditIsRetriedWithSameContent() {
+		MessageEditChannel channel = open(Duration.ZERO);
+		failing = true;
+		channel.update("Votes: 1");
+		failing = false;
+		channel.update("Votes: 1");
+		channel.update("Votes: 1");
+		assertEquals(List.of("Votes: 1", "Votes: 1"), edits);
+		assertEquals(1, channel.getSuppressedCount());
+	}
+
+	@Test
+	void testCloseSendsLatestUpdate() {
+		MessageEditChannel channel = open(Duration.ofMinutes(1));
+		channel.update("First");
+		channel.update("Second");
+		channel.update("Last");
+		channel.close();
+		assertEquals(List.of("First", "Last"), edits);
+		assertThrows(IllegalStateException.class, () -> channel.update("Closed"));
+	}
+}
@@ -0,0 +1,96 @@
+package no.smileyface.discordbotframework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import no.smileyface.discordbotframework.data.Node;
+import no.smileyface.discordbotframework.entities.BotAction;
+import no.smileyface.discordbotframework.entities.GenericBotAction;
+import no.smileyface.discordbotframework.files.FileInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupTimelineTest {
+	@TempDir
+	Path directory;
+
+	static class TextFileInterface extends FileInterface<String> {
+		TextFileInterface(String path) throws IOException {
+			super(path);
+		}
+
+		@Override
+		protected String fromBytes(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		protected byte[] toBytes(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	static class EmptyAction extends BotAction<GenericBotAction.ArgKey> {
+		EmptyAction(ActionManager manager) {
+			super(manager);
+		}
+
+		@Override
+		protected void execute(IReplyCallback event, Node<ArgKey, Object> args) {
+			// Do nothing, just testing :)
+		}
+	}
+
+	static class LoadingAction extends EmptyAction {
+		private final TextFileInterface file;
+
+		LoadingAction(ActionManager manager, Path path) {
+			super(manager);
+			try {
+				this.file = new TextFileInterface(path.toString());
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+
+	@Test
+	void testActionsAndFileLoadsAreTimed() throws IOException {
+		Path path = directory.resolve("text");
+		Files.writeString(path, "timed");
+		ActionManager manager = new ActionManager(m -> List.of(
+				new EmptyAction(m),
+				new LoadingAction(m, path)
+		));
+		StartupTimeline timeline = manager.getStartupTimeline();
+
+		assertEquals(
+				List.of(StartupTimeline.ACTIONS),
+				timeline.getPhases().stream().map(StartupTimeline.Entry::getName).toList()
+		);
+		assertEquals(
+				List.of("EmptyAction", "LoadingAction"),
+				timeline.getActions().stream().map(StartupTimeline.Entry::getName).toList()
+		);
+		List<StartupTimeline.Entry> fileLoads = timeline.getFileLoads();
+		assertEquals(1, fileLoads.size());
+		assertEquals(path.toString(), fileLoads.get(0).getName());
+		assertEquals(5, fileLoads.get(0).getBytes());
+		assertTrue(timeline.summarize().contains("LoadingAction"));
+	}
+
+	@Test
+	void testNothingIsTimedAfterStartup() throws IOException {
+		ActionManager manager = new ActionManager(m -> List.of());
+		new EmptyAction(manager);
+		new TextFileInterface(directory.resolve("text").toString());
+		assertTrue(manager.getStartupTimeline().getActions().isEmpty());
+		assertTrue(manager.getStartupTimeline().getFileLoads().isEmpty());
+	}
+}
@@ -0,0 +1,68 @@
+package no.smileyface.discordbotframework.data;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void testMatchesHashSet(boolean offHeap) {
+		Random random = new Random(42);
+		LongHashSet set = new LongHashSet(0, offHeap);
+		Set<Long> expected = new HashSet<>();
+		for (int i = 0; i < 50_000; i++) {
+			// A small range makes collisions, removals & re-additions common
+			long value = random.nextInt(2_000) - 10;
+			if (random.nextBoolean()) {
+				assertEquals(expected.add(value), set.add(value));
+			} else {
+				assertEquals(expected.remove(value), set.remove(value));
+			}
+			assertEquals(expected.size(), set.size());
+		}
+		for (long value = -10; value < 1_990; value++) {
+			assertEquals(expected.contains(value), set.contains(value));
+		}
+		assertEquals(expected, new HashSet<>(set));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void testIteratorRemoval(boolean offHeap) {
+		Random random = new Random(7);
+		LongHashSet set = new LongHashSet(0, offHeap);
+		Set<Long> expected = new HashSet<>();
+		for (int i = 0; i < 10_000; i++) {
+			long value = random.nextLong();
+			set.add(value);
+			expected.add(value);
+		}
+		set.add(0);
+		expected.add(0L);
+
+		Set<Long> seen = new HashSet<>();
+		Iterator<Long> iterator = set.iterator();
+		while (iterator.hasNext()) {
+			long value = iterator.next();
+			assertTrue(seen.add(value), "Value returned twice: " + value);
+			if (value % 3 == 0) {
+				iterator.remove();
+				expected.remove(value);
+			}
+		}
+		assertEquals(10_001, seen.size());
+		assertEquals(expected, new HashSet<>(set));
+	}
+
+	@Test
+	void testOffHeapCapacityIsLimitedByBufferSize() {
+		assertThrows(IllegalArgumentException.class, () -> new LongHashSet(150_000_000, true));
+	}
+}
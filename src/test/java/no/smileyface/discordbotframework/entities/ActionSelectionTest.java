@@ -3,6 +3,7 @@ package no.smileyface.discordbotframework.entities;
 import net.dv8tion.jda.api.interactions.components.selections.SelectMenu;
 import net.dv8tion.jda.api.interactions.components.selections.StringSelectMenu;
 import no.smileyface.discordbotframework.entities.context.ContextSelection;
+import no.smileyface.discordbotframework.entities.noncontext.ActionSelection;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,4 +18,19 @@ class ActionSelectionTest {
 
 		assertNotNull(select);
 	}
+
+	@Test
+	void testSelectMenuIsPrebuilt() {
+		ActionSelection<GenericBotAction.ArgKey> selection = new ActionSelection<>(
+				() -> StringSelectMenu.create("test").addOption("Test option", "Test value"),
+				null
+		);
+
+		assertSame(selection.getSelectMenu(), selection.getSelectMenu());
+		assertEquals(selection.getSelectMenu(), selection.getSelectionMenu(builder -> { }));
+
+		SelectMenu modified = selection.getSelectionMenu(builder -> builder.setDisabled(true));
+		assertTrue(modified.isDisabled());
+		assertFalse(selection.getSelectMenu().isDisabled());
+	}
 }
@@ -0,0 +1,391 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import no.smileyface.discordbotframework.data.LongHashSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionFileInterfaceTest {
+	@TempDir
+	Path directory;
+
+	private LongCollectionFileInterface open(FileOptions options) throws IOException {
+		return new LongCollectionFileInterface(directory.resolve("ids").toString(), options);
+	}
+
+	static class StringCollectionFileInterface extends CollectionFileInterface<String> {
+		StringCollectionFileInterface(String path, FileOptions options) throws IOException {
+			super(path, options);
+		}
+
+		@Override
+		protected String itemFromBytes(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		protected byte[] itemToBytes(String item) {
+			return item.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void testDynamicLengthPersistence() throws IOException {
+		String path = directory.resolve("strings").toString();
+		Set<String> strings = Set.of("", "a", "æøå", "x".repeat(1000));
+		try (StringCollectionFileInterface collection =
+				new StringCollectionFileInterface(path, FileOptions.DEFAULT)) {
+			collection.addAllChecked(strings);
+		}
+		try (StringCollectionFileInterface collection =
+				new StringCollectionFileInterface(path, FileOptions.DEFAULT)) {
+			assertEquals(strings, Set.copyOf(collection));
+		}
+	}
+
+	@Test
+	void testSnapshotPersistence() throws IOException {
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			ids.addAllChecked(List.of(1L, 2L, 3L));
+			ids.removeChecked(2L);
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(Set.of(1L, 3L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testPrimitiveAccess() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withOffHeap(true);
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertTrue(ids.addLong(0));
+			assertTrue(ids.addLong(Long.MAX_VALUE));
+			assertFalse(ids.addLong(0));
+			assertTrue(ids.removeLong(Long.MAX_VALUE));
+		}
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertTrue(ids.containsLong(0));
+			assertFalse(ids.containsLong(Long.MAX_VALUE));
+			assertTrue(ids.contains(0L));
+		}
+	}
+
+	@Test
+	void testOffHeapIsKeptByLaterOptions() throws IOException {
+		FileOptions options = FileOptions.DEFAULT
+				.withOffHeap(true)
+				.withDurability(FileOptions.Durability.BUFFERED);
+		assertTrue(options.isOffHeap());
+		try (LongCollectionFileInterface ids = open(options)) {
+			boolean offHeap = ids.getBackingOptimistically(
+					collection -> ((LongHashSet) collection).isOffHeap()
+			);
+			assertTrue(offHeap);
+		}
+	}
+
+	@Test
+	void testSetAcceptsAnyCollection() throws IOException {
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			ids.set(new HashSet<>(Set.of(1L, 2L)));
+			assertTrue(ids.containsLong(1));
+			assertTrue(ids.addLong(3));
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(Set.of(1L, 2L, 3L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testIteratorsSeeTheCollectionWhenCreated() throws IOException {
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			ids.addAllChecked(List.of(1L, 2L));
+			Iterator<Long> before = ids.iterator();
+			Iterator<Long> unchanged = ids.iterator();
+			ids.addLong(3);
+			Iterator<Long> removing = ids.iterator();
+			while (removing.hasNext()) {
+				if (removing.next() == 1L) {
+					removing.remove();
+				}
+			}
+			Set<Long> seen = new HashSet<>();
+			before.forEachRemaining(seen::add);
+			assertEquals(Set.of(1L, 2L), seen);
+			seen.clear();
+			unchanged.forEachRemaining(seen::add);
+			assertEquals(Set.of(1L, 2L), seen);
+			assertEquals(Set.of(2L, 3L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testHeaderlessFormatIsMigrated() throws IOException {
+		Path file = directory.resolve("ids");
+		ByteBuffer legacy = ByteBuffer.allocate(3 * Long.BYTES).putLong(3).putLong(-1).putLong(2);
+		Files.write(file, legacy.array());
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(Set.of(3L, -1L, 2L), Set.copyOf(ids));
+			ids.addLong(4);
+		}
+		assertEquals((byte) 0xC5, Files.readAllBytes(file)[0]);
+		assertTrue(Files.size(file) < 4 * Long.BYTES);
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(Set.of(3L, -1L, 2L, 4L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testSnowflakesAreDeltaEncoded() throws IOException {
+		Random random = new Random(0);
+		Set<Long> snowflakes = new HashSet<>();
+		// Snowflakes created within about a day of each other
+		long base = 1_200_000_000_000_000_000L;
+		while (snowflakes.size() < 1000) {
+			snowflakes.add(base + (random.nextLong(86_400_000L) << 22) + random.nextInt(4096));
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			ids.addAllChecked(snowflakes);
+		}
+		assertTrue(Files.size(directory.resolve("ids")) < snowflakes.size() * Long.BYTES * 3 / 4);
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(snowflakes, Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testSaveReplacesFileAtomically() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withDurability(FileOptions.Durability.PERIODIC);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addAllChecked(List.of(1L, 2L));
+			assertTrue(Files.size(directory.resolve("ids")) > 0);
+			assertFalse(Files.exists(directory.resolve("ids.tmp")));
+		}
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertEquals(Set.of(1L, 2L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testWriteBehindCoalescesSaves() throws Exception {
+		FileOptions options = FileOptions.DEFAULT.withWriteBehind(Duration.ofMinutes(1));
+		try (LongCollectionFileInterface ids = open(options)) {
+			for (long id = 0; id < 1000; id++) {
+				ids.addLong(id);
+			}
+			assertEquals(0, Files.size(directory.resolve("ids")));
+			ids.flush().get();
+			assertTrue(Files.size(directory.resolve("ids")) > 0);
+			ids.removeLong(0);
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(999, ids.size());
+			assertFalse(ids.containsLong(0));
+		}
+	}
+
+	@Test
+	void testLazyLoading() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withAppendLog(1024 * 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addAllChecked(List.of(1L, 2L));
+		}
+		FileOptions lazy = options.withLoading(FileOptions.Loading.LAZY);
+		try (LongCollectionFileInterface ids = open(lazy)) {
+			assertFalse(ids.isLoaded());
+			assertTrue(ids.containsLong(2));
+			assertTrue(ids.isLoaded());
+			ids.addLong(3);
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT
+				.withLoading(FileOptions.Loading.BACKGROUND)
+				.withAppendLog(1024 * 1024))) {
+			assertTrue(ids.addLong(4));
+			assertEquals(Set.of(1L, 2L, 3L, 4L), Set.copyOf(ids));
+		}
+	}
+
+	@Test
+	void testBloomFilterRulesOutMissingElements() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withBloomFilter(0.01, 1024 * 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			List<Long> added = new ArrayList<>();
+			for (long id = 0; id < 5000; id++) {
+				added.add(id);
+			}
+			ids.addAllChecked(added);
+			assertTrue(ids.removeLong(42));
+			assertFalse(ids.containsLong(42));
+			int falsePositives = 0;
+			for (long id = 5000; id < 15000; id++) {
+				// The unboxed check must hash exactly like the serialized element
+				assertEquals(
+						ids.isRuledOutByBloomFilter((Object) id),
+						ids.isRuledOutByBloomFilter(id)
+				);
+				if (!ids.isRuledOutByBloomFilter(id)) {
+					falsePositives++;
+				}
+				assertFalse(ids.contains(id));
+			}
+			assertTrue(falsePositives < 300, falsePositives + " false positives");
+		}
+		assertTrue(Files.exists(directory.resolve("ids.bloom")));
+		try (LongCollectionFileInterface ids = open(options
+				.withLoading(FileOptions.Loading.LAZY))) {
+			assertFalse(ids.containsLong(-1));
+			assertFalse(ids.isLoaded());
+			assertTrue(ids.containsLong(4999));
+			assertTrue(ids.isLoaded());
+		}
+	}
+
+	@Test
+	void testBloomFilterIsOnlyTrustedAfterClose() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withBloomFilter(0.01, 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addLong(1);
+		}
+		// Simulates a crash by opening the file again without closing it after modifying it
+		LongCollectionFileInterface crashed = open(options);
+		assertFalse(Files.exists(directory.resolve("ids.bloom")));
+		crashed.addLong(2);
+		try (LongCollectionFileInterface ids = open(options
+				.withLoading(FileOptions.Loading.LAZY))) {
+			assertTrue(ids.containsLong(2));
+		}
+		assertTrue(Files.exists(directory.resolve("ids.bloom")));
+	}
+
+	@Test
+	void testOutdatedBloomFilterIsRebuilt() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withBloomFilter(0.01, 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addLong(1);
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			ids.addLong(2);
+		}
+		try (LongCollectionFileInterface ids = open(options
+				.withLoading(FileOptions.Loading.LAZY))) {
+			assertTrue(ids.containsLong(2));
+		}
+	}
+
+	@Test
+	void testRemoveIf() throws IOException {
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			List<Long> added = new ArrayList<>();
+			for (long id = 0; id < 10_000; id++) {
+				added.add(id);
+			}
+			ids.addAllChecked(added);
+			assertTrue(ids.removeIfChecked(id -> id % 2 == 0));
+			assertFalse(ids.removeIfChecked(id -> id % 2 == 0));
+			assertEquals(5_000, ids.size());
+		}
+		try (LongCollectionFileInterface ids = open(FileOptions.DEFAULT)) {
+			assertEquals(5_000, ids.size());
+			assertFalse(ids.containsLong(2));
+		}
+	}
+
+	@Test
+	void testFailedBatchIsRolledBack() throws IOException {
+		for (FileOptions options : List.of(
+				FileOptions.DEFAULT,
+				FileOptions.DEFAULT.withAppendLog(1024 * 1024).withBloomFilter(0.01, 1024)
+		)) {
+			try (LongCollectionFileInterface ids = open(options)) {
+				ids.clearChecked();
+				ids.addAllChecked(List.of(1L, 2L));
+				assertThrows(IllegalStateException.class, () -> ids.batch(collection -> {
+					collection.add(3L);
+					collection.clear();
+					throw new IllegalStateException("Failed batch");
+				}));
+				assertEquals(Set.of(1L, 2L), Set.copyOf(ids));
+				assertTrue(ids.containsLong(1));
+				ids.batch(collection -> {
+					collection.remove(1L);
+					collection.add(4L);
+				});
+			}
+			try (LongCollectionFileInterface ids = open(options)) {
+				assertEquals(Set.of(2L, 4L), Set.copyOf(ids));
+			}
+		}
+	}
+
+	@Test
+	void testAppendLogIsReplayedOnLoad() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withAppendLog(1024 * 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addAllChecked(List.of(1L, 2L, 3L));
+			ids.removeChecked(2L);
+			assertEquals(0, Files.size(directory.resolve("ids")));
+			assertTrue(Files.size(directory.resolve("ids.log")) > 0);
+		}
+		long logSize = Files.size(directory.resolve("ids.log"));
+		List<Long> loadedBytes = new ArrayList<>();
+		FileInterface.LoadListener listener = (path, bytes, duration) -> {
+			if (path.equals(FileInterface.BASE_PATH.resolve(directory.resolve("ids")))) {
+				loadedBytes.add(bytes);
+			}
+		};
+		FileInterface.addLoadListener(listener);
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertEquals(Set.of(1L, 3L), Set.copyOf(ids));
+			assertEquals(0, Files.size(directory.resolve("ids.log")));
+		} finally {
+			FileInterface.removeLoadListener(listener);
+		}
+		// The main file is empty, so everything loaded came from the log
+		assertEquals(List.of(logSize), loadedBytes);
+	}
+
+	@Test
+	void testAppendLogIsCompacted() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withAppendLog(64);
+		try (LongCollectionFileInterface ids = open(options)) {
+			for (long id = 0; id < 100; id++) {
+				ids.addChecked(id);
+			}
+		}
+		assertTrue(Files.size(directory.resolve("ids")) > 0);
+		assertFalse(Files.exists(directory.resolve("ids.log.old")));
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertEquals(100, ids.size());
+		}
+	}
+
+	@Test
+	void testPartialLogRecordIsDiscarded() throws IOException {
+		FileOptions options = FileOptions.DEFAULT.withAppendLog(1024 * 1024);
+		try (LongCollectionFileInterface ids = open(options)) {
+			ids.addChecked(1L);
+		}
+		Files.write(
+				directory.resolve("ids.log"),
+				new byte[]{1, 0, 0, 0},
+				StandardOpenOption.APPEND
+		);
+		try (LongCollectionFileInterface ids = open(options)) {
+			assertEquals(Set.of(1L), Set.copyOf(ids));
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Measures save & load throughput against compression ratio for each
+ * {@link FileOptions.Compression}. Only runs when {@code -Dbenchmarks=true} is set,
+ * e.g. with {@code mvn test -Dtest=CompressionBenchmark -Dbenchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CompressionBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 20;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void benchmarkHistory() throws IOException {
+		Random random = new Random(0);
+		StringBuilder history = new StringBuilder();
+		String[] actions = {"play", "skip", "queue", "pause", "resume", "stop"};
+		while (history.length() < 4 * 1024 * 1024) {
+			history.append(String.format(
+					"{\"user\":%s,\"guild\":%s,\"action\":\"%s\",\"time\":%s}%n",
+					1_100_000_000_000_000_000L + random.nextLong(1L << 50),
+					1_000_000_000_000_000_000L + random.nextInt(20),
+					actions[random.nextInt(actions.length)],
+					1_700_000_000_000L + random.nextInt(100_000_000)
+			));
+		}
+		String value = history.toString();
+		for (FileOptions.Compression compression : FileOptions.Compression.values()) {
+			benchmark("history", compression, options -> {
+				FileInterfaceTest.TextFileInterface text = new FileInterfaceTest.TextFileInterface(
+						directory.resolve("history").toString(),
+						options
+				);
+				text.set(value);
+				return text;
+			}, options -> new FileInterfaceTest.TextFileInterface(
+					directory.resolve("history").toString(),
+					options
+			), value.length());
+		}
+	}
+
+	@Test
+	void benchmarkSnowflakes() throws IOException {
+		Random random = new Random(0);
+		Set<Long> snowflakes = new HashSet<>();
+		while (snowflakes.size() < 500_000) {
+			snowflakes.add(1_100_000_000_000_000_000L + random.nextLong(1L << 52));
+		}
+		for (FileOptions.Compression compression : FileOptions.Compression.values()) {
+			benchmark("snowflakes", compression, options -> {
+				Files.deleteIfExists(directory.resolve("snowflakes"));
+				LongCollectionFileInterface ids = new LongCollectionFileInterface(
+						directory.resolve("snowflakes").toString(),
+						options
+				);
+				ids.addAllChecked(snowflakes);
+				return ids;
+			}, options -> new LongCollectionFileInterface(
+					directory.resolve("snowflakes").toString(),
+					options
+			), snowflakes.size() * Long.BYTES);
+		}
+	}
+
+	private void benchmark(
+			String name,
+			FileOptions.Compression compression,
+			Opener save,
+			Opener load,
+			long rawBytes
+	) throws IOException {
+		FileOptions options = FileOptions.DEFAULT
+				.withDurability(FileOptions.Durability.BUFFERED)
+				.withCompression(compression);
+		long saveNanos = 0;
+		long loadNanos = 0;
+		long size = 0;
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+			long start = System.nanoTime();
+			save.open(options).close();
+			long saved = System.nanoTime();
+			load.open(options).close();
+			long loaded = System.nanoTime();
+			if (round >= WARMUP_ROUNDS) {
+				saveNanos += saved - start;
+				loadNanos += loaded - saved;
+			}
+			size = Files.size(directory.resolve(name));
+		}
+		System.out.printf(
+				"%-10s %-12s %9d bytes (%5.1f%% of raw)  save %7.1f MB/s  load %7.1f MB/s%n",
+				name,
+				compression,
+				size,
+				100.0 * size / rawBytes,
+				throughput(rawBytes, saveNanos),
+				throughput(rawBytes, loadNanos)
+		);
+	}
+
+	private static double throughput(long rawBytes, long nanos) {
+		return rawBytes * ROUNDS / (nanos / 1e9) / (1024 * 1024);
+	}
+
+	@FunctionalInterface
+	private interface Opener {
+		FileInterface<?> open(FileOptions options) throws IOException;
+	}
+}
@@ -0,0 +1,101 @@
+package no.smileyface.discordbotframework.files;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileInterfaceConcurrencyTest {
+	private static final int WRITERS = 4;
+	private static final int READERS = 4;
+	private static final int OPERATIONS = 1_000;
+	private static final int IDS_PER_WRITER = 200;
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void testConcurrentModificationsAreConsistent(boolean appendLog) throws Exception {
+		FileOptions options = FileOptions.DEFAULT.withDurability(FileOptions.Durability.BUFFERED);
+		if (appendLog) {
+			options = options.withAppendLog(4 * 1024);
+		}
+		String path = directory.resolve("ids").toString();
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+		List<Set<Long>> expected = new ArrayList<>();
+		try (LongCollectionFileInterface ids = new LongCollectionFileInterface(path, options)) {
+			CountDownLatch start = new CountDownLatch(1);
+			AtomicBoolean writing = new AtomicBoolean(true);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int writer = 0; writer < WRITERS; writer++) {
+				// Each writer owns its own range of IDs, so the final state is known
+				long offset = (long) writer * IDS_PER_WRITER;
+				Set<Long> owned = new HashSet<>();
+				expected.add(owned);
+				Random random = new Random(writer);
+				writers.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < OPERATIONS; i++) {
+						long id = offset + random.nextInt(IDS_PER_WRITER);
+						if (random.nextBoolean()) {
+							assertEquals(owned.add(id), ids.addLong(id));
+						} else {
+							assertEquals(owned.remove(id), ids.removeChecked(id));
+						}
+					}
+					return null;
+				}));
+			}
+			List<Future<?>> readers = new ArrayList<>();
+			for (int reader = 0; reader < READERS; reader++) {
+				readers.add(executor.submit(() -> {
+					start.await();
+					while (writing.get()) {
+						int size = ids.size();
+						assertTrue(size >= 0 && size <= WRITERS * IDS_PER_WRITER);
+						ids.containsLong(size);
+						for (Long id : ids) {
+							assertNotNull(id);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> writer : writers) {
+				writer.get(60, TimeUnit.SECONDS);
+			}
+			writing.set(false);
+			for (Future<?> reader : readers) {
+				reader.get(60, TimeUnit.SECONDS);
+			}
+
+			Set<Long> all = new HashSet<>();
+			expected.forEach(all::addAll);
+			assertEquals(all, new HashSet<>(ids));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Set<Long> all = new HashSet<>();
+		expected.forEach(all::addAll);
+		try (LongCollectionFileInterface reloaded =
+				new LongCollectionFileInterface(path, options)) {
+			assertEquals(all, new HashSet<>(reloaded));
+		}
+	}
+}
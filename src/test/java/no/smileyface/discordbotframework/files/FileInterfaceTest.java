@@ -0,0 +1,105 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileInterfaceTest {
+	private static final String TEXT =
+			"{\"user\":123456789012345678,\"action\":\"play\"}\n".repeat(500);
+
+	@TempDir
+	Path directory;
+
+	static class TextFileInterface extends FileInterface<String> {
+		TextFileInterface(String path, FileOptions options) throws IOException {
+			super(path, true, options);
+		}
+
+		@Override
+		protected String fromBytes(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		protected byte[] toBytes(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void set(String value) throws IOException {
+			super.set(value);
+		}
+
+		String get() {
+			return get(value -> value);
+		}
+	}
+
+	private TextFileInterface open(FileOptions.Compression compression) throws IOException {
+		return new TextFileInterface(
+				directory.resolve("text").toString(),
+				FileOptions.DEFAULT.withCompression(compression)
+		);
+	}
+
+	@Test
+	void testCompressedValueIsReadRegardlessOfOptions() throws IOException {
+		Path file = directory.resolve("text");
+		try (TextFileInterface text = open(FileOptions.Compression.DEFLATE)) {
+			text.set(TEXT);
+		}
+		assertTrue(Files.size(file) < TEXT.length() / 10);
+		try (TextFileInterface text = open(FileOptions.Compression.NONE)) {
+			assertEquals(TEXT, text.get());
+			text.set(TEXT);
+		}
+		assertEquals(TEXT.length(), Files.size(file));
+		try (TextFileInterface text = open(FileOptions.Compression.DEFLATE_FAST)) {
+			assertEquals(TEXT, text.get());
+		}
+	}
+
+	@Test
+	void testIncompressibleValueIsSavedUncompressed() throws IOException {
+		try (TextFileInterface text = open(FileOptions.Compression.DEFLATE)) {
+			text.set("short");
+		}
+		assertEquals("short", Files.readString(directory.resolve("text")));
+	}
+
+	@Test
+	void testBatchOnNullValue() throws IOException {
+		try (TextFileInterface text = open(FileOptions.Compression.NONE)) {
+			text.batch(Assertions::assertNull);
+			IllegalStateException failure = new IllegalStateException("Failed batch");
+			IllegalStateException thrown = assertThrows(
+					IllegalStateException.class,
+					() -> text.batch(value -> {
+						throw failure;
+					})
+			);
+			assertSame(failure, thrown);
+			assertNull(text.get());
+		}
+	}
+
+	@Test
+	void testCorruptLengthIsRejected() {
+		byte[] compressed = PayloadCompression.compress(
+				TEXT.getBytes(StandardCharsets.UTF_8),
+				FileOptions.Compression.DEFLATE
+		);
+		ByteBuffer negative = ByteBuffer.wrap(compressed.clone()).putInt(8, -1);
+		assertThrows(IOException.class, () -> PayloadCompression.decompress(negative));
+		ByteBuffer huge = ByteBuffer.wrap(compressed.clone()).putInt(8, Integer.MAX_VALUE);
+		assertThrows(IOException.class, () -> PayloadCompression.decompress(huge));
+	}
+}
@@ -0,0 +1,166 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapFileInterfaceTest {
+	private static final ItemCodec<String> STRING_CODEC = new ItemCodec<>() {
+		@Override
+		public String read(ByteBuffer buffer, int offset, int length) {
+			byte[] bytes = new byte[length];
+			buffer.get(offset, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public int write(String item, ByteBuffer buffer, int offset) {
+			byte[] bytes = item.getBytes(StandardCharsets.UTF_8);
+			buffer.put(offset, bytes);
+			return bytes.length;
+		}
+	};
+
+	@TempDir
+	Path directory;
+
+	static class StringMapFileInterface extends MapFileInterface<String, String> {
+		StringMapFileInterface(String path, int cacheSize) throws IOException {
+			super(
+					path,
+					cacheSize,
+					FileOptions.DEFAULT.withDurability(FileOptions.Durability.BUFFERED)
+			);
+		}
+
+		StringMapFileInterface(String path, SegmentedLruCache<String, String> cache)
+				throws IOException {
+			super(path, cache, FileOptions.DEFAULT.withDurability(FileOptions.Durability.BUFFERED));
+		}
+
+		@Override
+		protected ItemCodec<String> getKeyCodec() {
+			return STRING_CODEC;
+		}
+
+		@Override
+		protected ItemCodec<String> getValueCodec() {
+			return STRING_CODEC;
+		}
+	}
+
+	private StringMapFileInterface open(int cacheSize) throws IOException {
+		return new StringMapFileInterface(directory.resolve("map").toString(), cacheSize);
+	}
+
+	private static Map<String, String> readAll(StringMapFileInterface map) throws IOException {
+		Map<String, String> entries = new HashMap<>();
+		map.forEach(entries::put);
+		return entries;
+	}
+
+	@Test
+	void testPutGetRemove() throws IOException {
+		try (StringMapFileInterface map = open(2)) {
+			map.put("a", "1");
+			map.put("b", "2");
+			map.put("a", "3");
+			assertEquals("3", map.get("a"));
+			assertEquals("2", map.get("b"));
+			assertNull(map.get("c"));
+			assertTrue(map.remove("b"));
+			assertFalse(map.remove("b"));
+			assertFalse(map.containsKey("b"));
+			assertEquals(1, map.size());
+		}
+		try (StringMapFileInterface map = open(2)) {
+			assertEquals(Map.of("a", "3"), readAll(map));
+		}
+	}
+
+	@Test
+	void testMissesAreReadThroughBoundedCache() throws IOException {
+		SegmentedLruCache<String, String> cache = SegmentedLruCache.ofBytes(4096);
+		try (StringMapFileInterface map = new StringMapFileInterface(
+				directory.resolve("map").toString(),
+				cache
+		)) {
+			for (int i = 0; i < 1000; i++) {
+				map.put("key" + i, "value" + i);
+			}
+			assertTrue(cache.getWeight() <= 4096);
+			assertTrue(cache.getEvictionCount() > 0);
+			for (int i = 0; i < 1000; i++) {
+				assertEquals("value" + i, map.get("key" + i));
+			}
+			assertEquals("value999", map.get("key999"));
+			assertTrue(cache.getMissCount() > 900);
+			assertTrue(cache.getHitCount() > 0);
+			assertTrue(cache.getWeight() <= 4096);
+		}
+	}
+
+	@Test
+	void testIndexGrowsBeyondSinglePages() throws IOException {
+		Map<String, String> expected = new HashMap<>();
+		try (StringMapFileInterface map = open(0)) {
+			for (int i = 0; i < 20_000; i++) {
+				map.put("key" + i, "value" + i);
+				expected.put("key" + i, "value" + i);
+			}
+			for (int i = 0; i < 20_000; i += 3) {
+				map.remove("key" + i);
+				expected.remove("key" + i);
+			}
+			for (int i = 1; i < 20_000; i += 3) {
+				map.put("key" + i, "updated" + i);
+				expected.put("key" + i, "updated" + i);
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		try (StringMapFileInterface map = open(0)) {
+			assertEquals(expected, readAll(map));
+			assertEquals("updated1", map.get("key1"));
+			assertNull(map.get("key0"));
+		}
+	}
+
+	@Test
+	void testCompactionReclaimsDeadRecords() throws IOException {
+		Path data = directory.resolve("map");
+		try (StringMapFileInterface map = open(16)) {
+			for (int i = 0; i < 100; i++) {
+				map.put("key", "value" + i);
+			}
+			long before = Files.size(data);
+			map.compact();
+			assertTrue(Files.size(data) < before);
+			assertEquals("value99", map.get("key"));
+		}
+		try (StringMapFileInterface map = open(16)) {
+			assertEquals(Map.of("key", "value99"), readAll(map));
+		}
+	}
+
+	@Test
+	void testIndexIsRebuiltAfterUncleanShutdown() throws IOException {
+		StringMapFileInterface crashed = open(16);
+		crashed.put("a", "1");
+		crashed.put("b", "2");
+		crashed.remove("a");
+		// Never closed, so the index is left marked as unclean
+		try (StringMapFileInterface map = open(16)) {
+			assertEquals(Map.of("b", "2"), readAll(map));
+			assertEquals(1, map.size());
+		}
+		crashed.close();
+	}
+}
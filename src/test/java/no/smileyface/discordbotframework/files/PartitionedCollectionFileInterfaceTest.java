@@ -0,0 +1,124 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedCollectionFileInterfaceTest {
+	private static final int PARTITIONS = 8;
+
+	@TempDir
+	Path directory;
+
+	static class LongPartitionedCollectionFileInterface
+			extends PartitionedCollectionFileInterface<Long> {
+		LongPartitionedCollectionFileInterface(String path, int partitionCount)
+				throws IOException {
+			super(path, partitionCount, Long.BYTES, FileOptions.DEFAULT);
+		}
+
+		@Override
+		protected Long itemFromBytes(byte[] bytes) {
+			return ByteBuffer.wrap(bytes).getLong();
+		}
+
+		@Override
+		protected byte[] itemToBytes(Long item) {
+			return ByteBuffer.allocate(Long.BYTES).putLong(item).array();
+		}
+	}
+
+	private LongPartitionedCollectionFileInterface open(int partitionCount) throws IOException {
+		return new LongPartitionedCollectionFileInterface(
+				directory.resolve("ids").toString(),
+				partitionCount
+		);
+	}
+
+	/**
+	 * Gets the identity of every partition file, which changes whenever a file is replaced.
+	 */
+	private Object[] partitionFileKeys() throws IOException {
+		Object[] keys = new Object[PARTITIONS];
+		for (int i = 0; i < PARTITIONS; i++) {
+			keys[i] = Files.readAttributes(
+					directory.resolve("ids").resolve("partition-" + i),
+					BasicFileAttributes.class
+			).fileKey();
+		}
+		return keys;
+	}
+
+	@Test
+	void testPartitionsArePersisted() throws IOException {
+		Set<Long> ids = LongStream.range(0, 1000).boxed().collect(Collectors.toSet());
+		try (LongPartitionedCollectionFileInterface collection = open(PARTITIONS)) {
+			assertTrue(collection.addAllChecked(ids));
+			assertTrue(collection.removeChecked(500L));
+			Iterator<Long> iterator = collection.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next() % 100 == 1) {
+					iterator.remove();
+				}
+			}
+		}
+		ids.remove(500L);
+		ids.removeIf(id -> id % 100 == 1);
+		try (LongPartitionedCollectionFileInterface collection = open(PARTITIONS)) {
+			assertEquals(ids.size(), collection.size());
+			assertEquals(ids, new HashSet<>(collection));
+			assertTrue(collection.contains(2L));
+			assertFalse(collection.contains(500L));
+		}
+	}
+
+	@Test
+	void testRemoveAfterHasNextRemovesLastElement() throws IOException {
+		try (LongPartitionedCollectionFileInterface collection = open(PARTITIONS)) {
+			collection.addAllChecked(LongStream.range(0, 100).boxed().toList());
+			Iterator<Long> iterator = collection.iterator();
+			while (iterator.hasNext()) {
+				iterator.next();
+				// May move on to the next partition before the element is removed
+				iterator.hasNext();
+				iterator.remove();
+			}
+			assertTrue(collection.isEmpty());
+		}
+	}
+
+	@Test
+	void testOnlyModifiedPartitionIsRewritten() throws IOException {
+		try (LongPartitionedCollectionFileInterface collection = open(PARTITIONS)) {
+			collection.addAllChecked(LongStream.range(0, 100).boxed().toList());
+			Object[] before = partitionFileKeys();
+			collection.addChecked(1000L);
+			Object[] after = partitionFileKeys();
+			int changed = 0;
+			for (int i = 0; i < PARTITIONS; i++) {
+				assertNotNull(before[i]);
+				if (!before[i].equals(after[i])) {
+					changed++;
+				}
+			}
+			assertEquals(1, changed);
+		}
+	}
+
+	@Test
+	void testPartitionCountCantChange() throws IOException {
+		open(PARTITIONS).close();
+		assertThrows(IOException.class, () -> open(PARTITIONS * 2));
+	}
+}
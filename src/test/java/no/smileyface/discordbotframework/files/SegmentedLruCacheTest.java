@@ -0,0 +1,53 @@
+package no.smileyface.discordbotframework.files;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLruCacheTest {
+	@Test
+	void testEntryCapacity() {
+		SegmentedLruCache<Integer, String> cache = SegmentedLruCache.ofEntries(10);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "value " + i, 0);
+		}
+		assertEquals(10, cache.size());
+		assertEquals(90, cache.getEvictionCount());
+		assertEquals("value 99", cache.get(99));
+		assertNull(cache.get(0));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate());
+	}
+
+	@Test
+	void testFrequentlyUsedEntriesSurviveScans() {
+		SegmentedLruCache<Integer, String> cache = SegmentedLruCache.ofEntries(100);
+		for (int i = 0; i < 50; i++) {
+			cache.put(i, "hot", 0);
+			cache.get(i);
+		}
+		for (int i = 1000; i < 10_000; i++) {
+			cache.put(i, "cold", 0);
+		}
+		for (int i = 0; i < 50; i++) {
+			assertEquals("hot", cache.get(i));
+		}
+		assertEquals(100, cache.size());
+	}
+
+	@Test
+	void testByteCapacity() {
+		SegmentedLruCache<Integer, String> cache = SegmentedLruCache.ofBytes(10_000);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, "value", 936);
+		}
+		// Each entry weighs its serialized size plus its estimated overhead
+		assertEquals(10, cache.size());
+		assertTrue(cache.getWeight() <= cache.getCapacity());
+		cache.put(-1, "too large", 20_000);
+		assertFalse(cache.contains(-1));
+		cache.remove(999);
+		assertEquals(9, cache.size());
+	}
+}
@@ -0,0 +1,124 @@
+package no.smileyface.discordbotframework.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLongFileInterfaceTest {
+	private static final FileOptions OPTIONS = FileOptions.DEFAULT
+			.withDurability(FileOptions.Durability.BUFFERED)
+			.withAppendLog(1024);
+
+	@TempDir
+	Path directory;
+
+	private SortedLongFileInterface open() throws IOException {
+		return new SortedLongFileInterface(directory.resolve("sorted").toString(), OPTIONS);
+	}
+
+	private static Set<Long> readAll(SortedLongFileInterface file) {
+		Set<Long> values = new HashSet<>();
+		file.forEachLong(values::add);
+		return values;
+	}
+
+	@Test
+	void testMatchesHashSet() throws IOException {
+		Random random = new Random(39);
+		Set<Long> expected = new HashSet<>();
+		try (SortedLongFileInterface file = open()) {
+			for (int i = 0; i < 20_000; i++) {
+				long value = random.nextInt(5_000) - 2_500L;
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(value), file.removeLong(value));
+				} else {
+					assertEquals(expected.add(value), file.addLong(value));
+				}
+				if (i % 1000 == 0) {
+					file.merge();
+				}
+			}
+			assertEquals(expected.size(), file.size());
+			for (long value = -2_500; value < 2_500; value++) {
+				assertEquals(expected.contains(value), file.containsLong(value));
+			}
+		}
+		try (SortedLongFileInterface file = open()) {
+			assertEquals(expected, readAll(file));
+		}
+	}
+
+	@Test
+	void testUnmergedDeltasAreReplayed() throws IOException {
+		SortedLongFileInterface first = open();
+		first.addLong(1);
+		first.addLong(2);
+		first.merge();
+		first.removeLong(1);
+		first.addLong(3);
+		// Simulates a crash by opening the file again without closing it first
+		try (SortedLongFileInterface file = open()) {
+			assertEquals(Set.of(2L, 3L), readAll(file));
+			assertFalse(file.containsLong(1));
+		}
+	}
+
+	@Test
+	void testMergeClearsLog() throws IOException {
+		try (SortedLongFileInterface file = open()) {
+			for (long i = 0; i < 10; i++) {
+				file.addLong(i);
+			}
+			assertTrue(Files.size(directory.resolve("sorted.log")) > 0);
+			file.merge();
+			assertEquals(0, Files.size(directory.resolve("sorted.log")));
+			assertEquals(Long.BYTES * 10 + 8, Files.size(directory.resolve("sorted")));
+		}
+	}
+
+	@Test
+	void testCloseLeavesDeltasInLog() throws IOException {
+		try (SortedLongFileInterface file = open()) {
+			file.addLong(1);
+			file.merge();
+			file.addLong(2);
+			file.removeLong(1);
+		}
+		assertEquals(Long.BYTES + 8, Files.size(directory.resolve("sorted")));
+		assertTrue(Files.size(directory.resolve("sorted.log")) > 0);
+		try (SortedLongFileInterface file = open()) {
+			assertEquals(Set.of(2L), readAll(file));
+		}
+	}
+
+	@Test
+	void testOpeningNotifiesLoadListeners() throws IOException {
+		try (SortedLongFileInterface file = open()) {
+			file.addLong(1);
+		}
+		long size = Files.size(directory.resolve("sorted"))
+				+ Files.size(directory.resolve("sorted.log"));
+		List<Long> loadedBytes = new ArrayList<>();
+		FileInterface.LoadListener listener = (path, bytes, duration) -> {
+			if (path.equals(FileInterface.BASE_PATH.resolve(directory.resolve("sorted")))) {
+				loadedBytes.add(bytes);
+			}
+		};
+		FileInterface.addLoadListener(listener);
+		try (SortedLongFileInterface file = open()) {
+			assertTrue(file.containsLong(1));
+		} finally {
+			FileInterface.removeLoadListener(listener);
+		}
+		assertEquals(List.of(size), loadedBytes);
+	}
+}
@@ -0,0 +1,61 @@
+package no.smileyface.discordbotframework.files.properties;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import no.smileyface.discordbotframework.data.Node;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyLoaderTest {
+	@Test
+	void testParsing() {
+		Node<String, String> root = assertDoesNotThrow(() -> PropertyLoader.parse(
+				"bot.active = test\r\n\n  bot.test=token=with=equals  \nlimit=5"
+		));
+		assertEquals("test", root.getChild("bot").getValue("active"));
+		assertEquals("token=with=equals", root.getChild("bot").getValue("test"));
+		assertEquals("5", root.getValue("limit"));
+	}
+
+	@Test
+	void testTrailingDotsAreDropped() {
+		Node<String, String> root = assertDoesNotThrow(() -> PropertyLoader.parse(
+				"bot.active. = test\nbot..name=empty\nlimit..=5"
+		));
+		assertEquals("test", root.getChild("bot").getValue("active"));
+		assertFalse(root.getChild("bot").getChild("active").getChildMap().containsKey(""));
+		assertEquals("empty", root.getChild("bot").getChild("").getValue("name"));
+		assertEquals("5", root.getValue("limit"));
+	}
+
+	@Test
+	void testInvalidLineThrows() {
+		PropertyLoadException ple = assertThrows(
+				PropertyLoadException.class,
+				() -> PropertyLoader.parse("valid=line\n\ninvalid line")
+		);
+		assertTrue(ple.getMessage().contains("Line 3"));
+	}
+
+	@Test
+	void testWatcherNotifiesChangedKeys(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("bot.properties");
+		Files.writeString(file, "bot.active=test\nlimit=5\n");
+		try (PropertyWatcher watcher = new PropertyWatcher(file)) {
+			Node<String, String> before = watcher.getProperties();
+			CompletableFuture<Set<String>> changed = new CompletableFuture<>();
+			watcher.addListener(changed::complete);
+
+			Files.writeString(file, "bot.active=test\nlimit=10\n");
+
+			assertEquals(Set.of("limit"), changed.get(10, TimeUnit.SECONDS));
+			assertEquals("10", watcher.getProperties().getValue("limit"));
+			assertEquals("5", before.getValue("limit"));
+		}
+	}
+}